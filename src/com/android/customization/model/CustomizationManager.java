@@ -41,6 +41,13 @@ public interface CustomizationManager<T extends CustomizationOption> {
          * @param throwable Exception thrown if available.
          */
         void onError(@Nullable Throwable throwable);
+
+        /**
+         * Called as the apply of an option progresses, for managers that apply in steps.
+         * @param completedSteps the number of steps done so far.
+         * @param stepCount the total number of steps of the apply.
+         */
+        default void onProgress(int completedSteps, int stepCount) {}
     }
 
     /**
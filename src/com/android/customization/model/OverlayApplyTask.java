@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.customization.model.CustomizationManager.Callback;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the steps of applying an overlay based option (writing the secure setting, toggling the
+ * overlays) on a background thread, so that a slow system_server doesn't block the caller.
+ *
+ * <p>Applies run one at a time in the order they were started, so a step can rely on the state
+ * left by the steps of the previous applies, like which option was applied last.
+ *
+ * <p>Progress and the final result are reported to the {@link Callback} on the main thread. A
+ * failure is also reported to the user with a toast.
+ *
+ * <p>An apply can be {@link #cancel() cancelled}, e.g. when a newer apply replaces it. A cancelled
+ * apply that hasn't started is skipped. One that has started still runs all of its steps, so the
+ * setting and the enabled overlays stay in sync, but nothing is reported for it anymore.
+ */
+public class OverlayApplyTask {
+
+    private static Executor sExecutor = Executors.newSingleThreadExecutor();
+
+    /** A single blocking step of an apply. */
+    public interface Step {
+        /**
+         * Runs the step on the background thread.
+         *
+         * @return whether the step succeeded, the remaining steps are skipped if it didn't.
+         */
+        boolean run();
+    }
+
+    private final Context mContext;
+    private final String mFailureMessage;
+    private final List<Step> mSteps;
+    @Nullable private final Callback mCallback;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean mCancelled;
+
+    private OverlayApplyTask(Context context, String failureMessage, List<Step> steps,
+            @Nullable Callback callback) {
+        mContext = context;
+        mFailureMessage = failureMessage;
+        mSteps = steps;
+        mCallback = callback;
+    }
+
+    /**
+     * Runs the given steps in order on the background thread, after the steps of the applies
+     * started before.
+     *
+     * @param failureMessage the message shown to the user if a step fails.
+     * @return the started apply, which can be used to cancel it.
+     */
+    public static OverlayApplyTask start(Context context, String failureMessage,
+            @Nullable Callback callback, Step... steps) {
+        OverlayApplyTask task =
+                new OverlayApplyTask(context, failureMessage, Arrays.asList(steps), callback);
+        sExecutor.execute(task::run);
+        return task;
+    }
+
+    /**
+     * Cancels the apply. Its steps are skipped if they haven't started yet, and its callback isn't
+     * called anymore.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /** Replaces the background executor, e.g. with one that runs the steps right away. */
+    @VisibleForTesting
+    public static void setExecutor(Executor executor) {
+        sExecutor = executor;
+    }
+
+    private void run() {
+        if (mCancelled) {
+            return;
+        }
+        int stepCount = mSteps.size();
+        for (int i = 0; i < stepCount; i++) {
+            if (!mSteps.get(i).run()) {
+                mMainHandler.post(this::onError);
+                return;
+            }
+            int completedSteps = i + 1;
+            mMainHandler.post(() -> {
+                if (mCallback != null && !mCancelled) {
+                    mCallback.onProgress(completedSteps, stepCount);
+                }
+            });
+        }
+        mMainHandler.post(() -> {
+            if (mCallback != null && !mCancelled) {
+                mCallback.onSuccess();
+            }
+        });
+    }
+
+    private void onError() {
+        if (mCancelled) {
+            return;
+        }
+        Toast.makeText(mContext, mFailureMessage, Toast.LENGTH_SHORT).show();
+        if (mCallback != null) {
+            mCallback.onError(null);
+        }
+    }
+}
@@ -24,11 +24,11 @@ import android.os.UserHandle;
 import android.provider.Settings;
 import android.text.TextUtils;
 import android.util.Log;
-import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 
 import com.android.customization.model.CustomizationManager;
+import com.android.customization.model.OverlayApplyTask;
 import com.android.customization.model.theme.OverlayManagerCompat;
 
 import java.util.Map;
@@ -41,7 +41,8 @@ public class FontManager implements CustomizationManager<FontOption> {
 
     private static FontManager sFontOptionManager;
     private Context mContext;
-    private FontOption mActiveOption;
+    // Written by the apply steps on the background thread.
+    private volatile FontOption mActiveOption;
     private OverlayManagerCompat mOverlayManager;
     private FontOptionProvider mProvider;
     private static final String TAG = "FontManager";
@@ -60,16 +61,28 @@ public class FontManager implements CustomizationManager<FontOption> {
 
     @Override
     public void apply(FontOption option, @Nullable Callback callback) {
-        if (!persistOverlay(option)) {
-            Toast failed = Toast.makeText(mContext, "Failed to apply font, reboot to try again.", Toast.LENGTH_SHORT);
-            failed.show();
-            if (callback != null) {
-                callback.onError(null);
-            }
-            return;
-        }
+        applyAsync(option, callback);
+    }
+
+    /**
+     * Same as {@link #apply}, but returns the started apply so that the caller can cancel it.
+     */
+    public OverlayApplyTask applyAsync(FontOption option, @Nullable Callback callback) {
+        return OverlayApplyTask.start(mContext,
+                "Failed to apply font, reboot to try again.", callback,
+                () -> persistOverlay(option),
+                () -> {
+                    // Runs after the steps of any earlier apply, so the active option is the one
+                    // applied last rather than the one active when this apply was requested.
+                    enableOverlay(option, mActiveOption);
+                    mActiveOption = option;
+                    return true;
+                });
+    }
+
+    private void enableOverlay(FontOption option, @Nullable FontOption previousOption) {
         if (option.getPackageName() == null) {
-            if (mActiveOption.getPackageName() == null) return;
+            if (previousOption != null && previousOption.getPackageName() == null) return;
             for (String overlay : mOverlayManager.getOverlayPackagesForCategory(
                     OVERLAY_CATEGORY_FONT, UserHandle.myUserId(), ANDROID_PACKAGE)) {
                 mOverlayManager.disableOverlay(overlay, UserHandle.myUserId());
@@ -77,10 +90,6 @@ public class FontManager implements CustomizationManager<FontOption> {
         } else {
             mOverlayManager.setEnabledExclusiveInCategory(option.getPackageName(), UserHandle.myUserId());
         }
-        if (callback != null) {
-            callback.onSuccess();
-        }
-        mActiveOption = option;
     }
 
     @Override
@@ -56,13 +56,14 @@ public class FontOption implements CustomizationOption<FontOption> {
     @Override
     public void bindThumbnailTile(View view) {
         Resources res = view.getContext().getResources();
-        ((TextView) view.findViewById(R.id.thumbnail_text)).setTypeface(
-                mHeadlineFont);
+        TextView thumbnailText = view.findViewById(R.id.thumbnail_text);
+        thumbnailText.setTypeface(mHeadlineFont);
+        FontPreviewTextCache.getInstance().bind(thumbnailText, /* isHeadline= */ true);
         int colorFilter = ResourceUtils.getColorAttr(view.getContext(),
                 view.isActivated() || view.getId() == R.id.font_section_tile
                         ? android.R.attr.textColorPrimary
                         : android.R.attr.textColorTertiary);
-        ((TextView) view.findViewById(R.id.thumbnail_text)).setTextColor(colorFilter);
+        thumbnailText.setTextColor(colorFilter);
         view.setContentDescription(mTitle);
     }
 
@@ -94,9 +95,26 @@ public class FontOption implements CustomizationOption<FontOption> {
         }
         TextView title = container.findViewById(R.id.font_card_title);
         title.setTypeface(mHeadlineFont);
+        FontPreviewTextCache.getInstance().bind(title, /* isHeadline= */ true);
         TextView bodyText = container.findViewById(R.id.font_card_body);
         bodyText.setTypeface(mBodyFont);
+        FontPreviewTextCache.getInstance().bind(bodyText, /* isHeadline= */ false);
         container.findViewById(R.id.font_card_divider).setBackgroundColor(
                 title.getCurrentTextColor());
     }
+
+    /**
+     * Shapes the sample strings of the thumbnail tiles and preview cards of the given options in
+     * the background, as soon as the first tile or card is bound, so that binding the others
+     * doesn't measure text on the UI thread.
+     */
+    public static void precomputeText(List<FontOption> options) {
+        List<Typeface> headlineTypefaces = new ArrayList<>(options.size());
+        List<Typeface> bodyTypefaces = new ArrayList<>(options.size());
+        for (FontOption option : options) {
+            headlineTypefaces.add(option.mHeadlineFont);
+            bodyTypefaces.add(option.mBodyFont);
+        }
+        FontPreviewTextCache.getInstance().setTypefaces(headlineTypefaces, bodyTypefaces);
+    }
 }
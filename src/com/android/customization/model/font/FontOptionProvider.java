@@ -46,6 +46,10 @@ public class FontOptionProvider {
     private PackageManager mPm;
     private final List<String> mOverlayPackages;
     private final List<FontOption> mOptions = new ArrayList<>();
+    // Keyed by overlay package, holds the options built for the last seen version of each overlay
+    // so reloads only need to recreate Typefaces for packages that were updated.
+    private final Map<String, CachedFontOption> mOptionCache = new HashMap<>();
+    private FontOption mDefaultOption;
     private String mActiveOverlay;
 
     public FontOptionProvider(Context context, OverlayManagerCompat manager) {
@@ -67,36 +71,60 @@ public class FontOptionProvider {
         addDefault();
         for (String overlayPackage : mOverlayPackages) {
             try {
-                Resources overlayRes = mPm.getResourcesForApplication(overlayPackage);
-                Typeface headlineFont = Typeface.create(
-                        getFontFamily(overlayPackage, overlayRes, CONFIG_HEADLINE_FONT_FAMILY),
-                        Typeface.NORMAL);
-                Typeface bodyFont = Typeface.create(
-                        getFontFamily(overlayPackage, overlayRes, CONFIG_BODY_FONT_FAMILY),
-                        Typeface.NORMAL);
-                String label = mPm.getApplicationInfo(overlayPackage, 0).loadLabel(mPm).toString();
-                mOptions.add(new FontOption(overlayPackage, label, headlineFont, bodyFont));
+                long versionCode = mPm.getPackageInfo(overlayPackage, 0).getLongVersionCode();
+                CachedFontOption cached = mOptionCache.get(overlayPackage);
+                if (cached == null || cached.mVersionCode != versionCode) {
+                    cached = new CachedFontOption(versionCode, createOption(overlayPackage));
+                    mOptionCache.put(overlayPackage, cached);
+                }
+                mOptions.add(cached.mOption);
             } catch (NameNotFoundException | NotFoundException e) {
+                mOptionCache.remove(overlayPackage);
                 Log.w(TAG, String.format("Couldn't load font overlay %s, will skip it",
                         overlayPackage), e);
             }
         }
     }
 
-    private void addDefault() {
-        Resources system = Resources.getSystem();
-        Typeface headlineFont = Typeface.create(system.getString(system.getIdentifier(
-                ResourceConstants.CONFIG_HEADLINE_FONT_FAMILY,"string", ANDROID_PACKAGE)),
+    private FontOption createOption(String overlayPackage) throws NameNotFoundException {
+        Resources overlayRes = mPm.getResourcesForApplication(overlayPackage);
+        Typeface headlineFont = Typeface.create(
+                getFontFamily(overlayPackage, overlayRes, CONFIG_HEADLINE_FONT_FAMILY),
                 Typeface.NORMAL);
-        Typeface bodyFont = Typeface.create(system.getString(system.getIdentifier(
-                ResourceConstants.CONFIG_BODY_FONT_FAMILY,
-                "string", ANDROID_PACKAGE)),
+        Typeface bodyFont = Typeface.create(
+                getFontFamily(overlayPackage, overlayRes, CONFIG_BODY_FONT_FAMILY),
                 Typeface.NORMAL);
-        mOptions.add(new FontOption(null, mContext.getString(R.string.default_theme_title),
-                headlineFont, bodyFont));
+        String label = mPm.getApplicationInfo(overlayPackage, 0).loadLabel(mPm).toString();
+        return new FontOption(overlayPackage, label, headlineFont, bodyFont);
+    }
+
+    private void addDefault() {
+        if (mDefaultOption == null) {
+            Resources system = Resources.getSystem();
+            Typeface headlineFont = Typeface.create(system.getString(system.getIdentifier(
+                    ResourceConstants.CONFIG_HEADLINE_FONT_FAMILY,"string", ANDROID_PACKAGE)),
+                    Typeface.NORMAL);
+            Typeface bodyFont = Typeface.create(system.getString(system.getIdentifier(
+                    ResourceConstants.CONFIG_BODY_FONT_FAMILY,
+                    "string", ANDROID_PACKAGE)),
+                    Typeface.NORMAL);
+            mDefaultOption = new FontOption(null, mContext.getString(R.string.default_theme_title),
+                    headlineFont, bodyFont);
+        }
+        mOptions.add(mDefaultOption);
     }
 
     private String getFontFamily(String overlayPackage, Resources overlayRes, String configName) {
         return overlayRes.getString(overlayRes.getIdentifier(configName, "string", overlayPackage));
     }
+
+    private static class CachedFontOption {
+        private final long mVersionCode;
+        private final FontOption mOption;
+
+        CachedFontOption(long versionCode, FontOption option) {
+            mVersionCode = versionCode;
+            mOption = option;
+        }
+    }
 }
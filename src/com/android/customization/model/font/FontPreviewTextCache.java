@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model.font;
+
+import android.graphics.Typeface;
+import android.text.PrecomputedText;
+import android.text.TextPaint;
+import android.util.LruCache;
+import android.util.Pair;
+import android.widget.TextView;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the {@link PrecomputedText} of the font sample strings, keyed by the text and the text
+ * metrics (typeface, text size, locale, ...) it was shaped with.
+ *
+ * <p>Shaping happens on a background thread. The first time a sample text view is bound, its text
+ * is also shaped for the typefaces of all the other font options, so binding their tiles or
+ * preview cards later only has to attach an already measured text.
+ */
+class FontPreviewTextCache {
+
+    /** Enough for the thumbnail, card title and card body of a few dozen font options. */
+    private static final int MAX_ENTRIES = 96;
+
+    private static final FontPreviewTextCache sInstance =
+            new FontPreviewTextCache(Executors.newSingleThreadExecutor());
+
+    private final Executor mExecutor;
+    private final LruCache<Pair<String, PrecomputedText.Params>, PrecomputedText> mCache =
+            new LruCache<>(MAX_ENTRIES);
+    private final Set<Pair<String, PrecomputedText.Params>> mPendingKeys =
+            ConcurrentHashMap.newKeySet();
+    // The (text, params) of the sample text views bound so far, regardless of their typeface.
+    private final Set<Pair<String, PrecomputedText.Params>> mTemplates =
+            ConcurrentHashMap.newKeySet();
+    private volatile List<Typeface> mHeadlineTypefaces = new ArrayList<>();
+    private volatile List<Typeface> mBodyTypefaces = new ArrayList<>();
+
+    @VisibleForTesting
+    FontPreviewTextCache(Executor executor) {
+        mExecutor = executor;
+    }
+
+    static FontPreviewTextCache getInstance() {
+        return sInstance;
+    }
+
+    /** Sets the typefaces of the font options, whose sample text gets shaped ahead of time. */
+    void setTypefaces(List<Typeface> headlineTypefaces, List<Typeface> bodyTypefaces) {
+        mHeadlineTypefaces = new ArrayList<>(headlineTypefaces);
+        mBodyTypefaces = new ArrayList<>(bodyTypefaces);
+        mTemplates.clear();
+    }
+
+    /**
+     * Sets the cached {@link PrecomputedText} on the given {@link TextView} if the text was already
+     * shaped with the view's current text metrics. Otherwise the text is set as is, and shaped in
+     * the background for the next bind.
+     *
+     * @param isHeadline whether the view shows a headline typeface, rather than a body one.
+     */
+    void bind(TextView textView, boolean isHeadline) {
+        String text = textView.getText().toString();
+        PrecomputedText.Params params = textView.getTextMetricsParams();
+        PrecomputedText precomputedText = mCache.get(Pair.create(text, params));
+        if (precomputedText != null) {
+            textView.setText(precomputedText);
+        } else {
+            textView.setText(text);
+            precompute(text, params);
+        }
+
+        if (mTemplates.add(Pair.create(text, withTypeface(params, null)))) {
+            for (Typeface typeface : isHeadline ? mHeadlineTypefaces : mBodyTypefaces) {
+                precompute(text, withTypeface(params, typeface));
+            }
+        }
+    }
+
+    private void precompute(String text, PrecomputedText.Params params) {
+        Pair<String, PrecomputedText.Params> key = Pair.create(text, params);
+        if (mCache.get(key) != null || !mPendingKeys.add(key)) {
+            return;
+        }
+        mExecutor.execute(() -> {
+            try {
+                mCache.put(key, PrecomputedText.create(text, params));
+            } finally {
+                mPendingKeys.remove(key);
+            }
+        });
+    }
+
+    private static PrecomputedText.Params withTypeface(PrecomputedText.Params params,
+            Typeface typeface) {
+        TextPaint paint = new TextPaint(params.getTextPaint());
+        paint.setTypeface(typeface);
+        return new PrecomputedText.Params.Builder(paint)
+                .setBreakStrategy(params.getBreakStrategy())
+                .setHyphenationFrequency(params.getHyphenationFrequency())
+                .setTextDirection(params.getTextDirection())
+                .setLineBreakConfig(params.getLineBreakConfig())
+                .build();
+    }
+}
@@ -23,7 +23,9 @@ import android.util.Log;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
 import com.android.customization.model.CustomizationManager;
 import com.android.customization.module.CustomizationInjector;
@@ -36,6 +38,7 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * {@link CustomizationManager} for interfacing with the launcher to handle {@link GridOption}s.
@@ -49,7 +52,9 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
 
     private final LauncherGridOptionsProvider mProvider;
     private final ThemesUserEventLogger mEventLogger;
-    private int mGridOptionSize = -1;
+    private final MutableLiveData<Boolean> mAvailability = new MutableLiveData<>();
+    private volatile int mGridOptionSize = -1;
+    @Nullable private Future<?> mGridOptionSizeFuture;
 
     /** Returns the {@link GridOptionsManager} instance. */
     public static GridOptionsManager getInstance(Context context) {
@@ -60,7 +65,8 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
                     (ThemesUserEventLogger) injector.getUserEventLogger();
             sGridOptionsManager = new GridOptionsManager(
                     new LauncherGridOptionsProvider(appContext,
-                            appContext.getString(R.string.grid_control_metadata_name)),
+                            appContext.getString(R.string.grid_control_metadata_name),
+                            injector.getCustomizationPreferences(appContext)),
                     eventLogger);
         }
         return sGridOptionsManager;
@@ -72,14 +78,47 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
         mEventLogger = logger;
     }
 
+    /**
+     * Starts loading whether grids are available in the background, unless it's already known or
+     * being loaded.
+     */
+    private synchronized Future<?> loadAvailability() {
+        if (mGridOptionSizeFuture == null) {
+            mGridOptionSizeFuture = sExecutorService.submit(
+                    () -> updateGridOptionSize(mProvider.fetch(/* reload= */true)));
+        }
+        return mGridOptionSizeFuture;
+    }
+
+    /**
+     * Starts loading whether grids are available in the background, so that the customization
+     * sections know it by the time they're built, without waiting on the launcher.
+     */
+    public void primeAvailability() {
+        if (mGridOptionSize < 0) {
+            loadAvailability();
+        }
+    }
+
+    /**
+     * Returns an observable of whether grids are available, which receives a new value each time
+     * the grid options are fetched from the launcher. Its value is null until the first fetch is
+     * done, which this starts if needed, so it never waits on the launcher.
+     */
+    public LiveData<Boolean> getAvailability() {
+        primeAvailability();
+        return mAvailability;
+    }
+
+    /**
+     * Returns whether grids are available, waiting on the launcher if it hasn't been asked yet.
+     * Prefer {@link #getAvailability()} on the main thread.
+     */
     @Override
     public boolean isAvailable() {
         if (mGridOptionSize < 0) {
             try {
-                mGridOptionSize = sExecutorService.submit(() -> {
-                    List<GridOption> gridOptions = mProvider.fetch(/* reload= */true);
-                    return gridOptions == null ? 0 : gridOptions.size();
-                }).get();
+                loadAvailability().get();
             } catch (InterruptedException | ExecutionException e) {
                 Log.w(TAG, "could not get gridOptionSize", e);
             }
@@ -87,6 +126,11 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
         return mGridOptionSize > 1 && mProvider.areGridsAvailable();
     }
 
+    private void updateGridOptionSize(@Nullable List<GridOption> gridOptions) {
+        mGridOptionSize = gridOptions == null ? 0 : gridOptions.size();
+        mAvailability.postValue(mGridOptionSize > 1 && mProvider.areGridsAvailable());
+    }
+
     @Override
     public void apply(GridOption option, Callback callback) {
         int updated = mProvider.applyGrid(option.name);
@@ -107,6 +151,7 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
     public void fetchOptions(OptionsFetchedListener<GridOption> callback, boolean reload) {
         sExecutorService.submit(() -> {
             List<GridOption> gridOptions = mProvider.fetch(reload);
+            updateGridOptionSize(gridOptions);
             new Handler(Looper.getMainLooper()).post(() -> {
                 if (callback != null) {
                     if (gridOptions != null && !gridOptions.isEmpty()) {
@@ -119,6 +164,16 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
         });
     }
 
+    /**
+     * Returns the grid options persisted by the last successful fetch, possibly from a previous
+     * session, or null if there are none. Must be called on a background thread.
+     */
+    @WorkerThread
+    @Nullable
+    public List<GridOption> getPersistedOptions() {
+        return mProvider.getPersistedOptions();
+    }
+
     /**
      * Returns an observable that receives a new value each time that the grid options are changed.
      */
@@ -24,26 +24,37 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.LocaleList;
+import android.util.Log;
 import android.view.SurfaceView;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.android.customization.model.ResourceConstants;
+import com.android.customization.module.CustomizationPreferences;
 import com.android.themepicker.R;
 import com.android.wallpaper.config.BaseFlags;
 import com.android.wallpaper.util.PreviewUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 /**
  * Abstracts the logic to retrieve available grid options from the current Launcher.
  */
 public class LauncherGridOptionsProvider {
 
+    private static final String TAG = "LauncherGridOptionsProvider";
     private static final String LIST_OPTIONS = "list_options";
     private static final String PREVIEW = "preview";
     private static final String DEFAULT_GRID = "default_grid";
@@ -54,17 +65,34 @@ public class LauncherGridOptionsProvider {
     private static final String COL_PREVIEW_COUNT = "preview_count";
     private static final String COL_IS_DEFAULT = "is_default";
 
+    private static final String[] LIST_OPTIONS_PROJECTION =
+            {COL_NAME, COL_ROWS, COL_COLS, COL_PREVIEW_COUNT, COL_IS_DEFAULT};
+
     private static final String METADATA_KEY_PREVIEW_VERSION = "preview_version";
 
     private final Context mContext;
     private final PreviewUtils mPreviewUtils;
+    private final CustomizationPreferences mPreferences;
     private final boolean mIsGridApplyButtonEnabled;
     private List<GridOption> mOptions;
+    private String mPersistedSnapshot;
     private OptionChangeLiveData mLiveData;
+    private int mIconMaskResId;
+    // Grid titles keyed by cols and rows, only valid for the locales they were formatted in.
+    private final Map<Long, String> mTitles = new HashMap<>();
+    private LocaleList mTitlesLocales;
 
-    public LauncherGridOptionsProvider(Context context, String authorityMetadataKey) {
-        mPreviewUtils = new PreviewUtils(context, authorityMetadataKey);
+    public LauncherGridOptionsProvider(Context context, String authorityMetadataKey,
+            CustomizationPreferences preferences) {
+        this(context, new PreviewUtils(context, authorityMetadataKey), preferences);
+    }
+
+    @VisibleForTesting
+    LauncherGridOptionsProvider(Context context, PreviewUtils previewUtils,
+            CustomizationPreferences preferences) {
+        mPreviewUtils = previewUtils;
         mContext = context;
+        mPreferences = preferences;
         mIsGridApplyButtonEnabled = BaseFlags.get().isGridApplyButtonEnabled(context);
     }
 
@@ -86,27 +114,119 @@ public class LauncherGridOptionsProvider {
             return mOptions;
         }
         ContentResolver resolver = mContext.getContentResolver();
-        String iconPath = mContext.getResources().getString(Resources.getSystem().getIdentifier(
-                ResourceConstants.CONFIG_ICON_MASK, "string", ResourceConstants.ANDROID_PACKAGE));
-        try (Cursor c = resolver.query(mPreviewUtils.getUri(LIST_OPTIONS), null, null, null,
-                null)) {
-            mOptions = new ArrayList<>();
+        String iconPath = getIconPath();
+        Uri previewUri = mPreviewUtils.getUri(PREVIEW);
+        try (Cursor c = resolver.query(mPreviewUtils.getUri(LIST_OPTIONS), LIST_OPTIONS_PROJECTION,
+                null, null, null)) {
+            int nameIndex = c.getColumnIndex(COL_NAME);
+            int rowsIndex = c.getColumnIndex(COL_ROWS);
+            int colsIndex = c.getColumnIndex(COL_COLS);
+            int previewCountIndex = c.getColumnIndex(COL_PREVIEW_COUNT);
+            int isDefaultIndex = c.getColumnIndex(COL_IS_DEFAULT);
+            mOptions = new ArrayList<>(c.getCount());
             while(c.moveToNext()) {
-                String name = c.getString(c.getColumnIndex(COL_NAME));
-                int rows = c.getInt(c.getColumnIndex(COL_ROWS));
-                int cols = c.getInt(c.getColumnIndex(COL_COLS));
-                int previewCount = c.getInt(c.getColumnIndex(COL_PREVIEW_COUNT));
-                boolean isSet = Boolean.parseBoolean(c.getString(c.getColumnIndex(COL_IS_DEFAULT)));
-                String title = mContext.getString(R.string.grid_title_pattern, cols, rows);
-                mOptions.add(new GridOption(title, name, isSet, rows, cols,
-                        mPreviewUtils.getUri(PREVIEW), previewCount, iconPath));
+                String name = c.getString(nameIndex);
+                int rows = c.getInt(rowsIndex);
+                int cols = c.getInt(colsIndex);
+                int previewCount = c.getInt(previewCountIndex);
+                boolean isSet = Boolean.parseBoolean(c.getString(isDefaultIndex));
+                mOptions.add(new GridOption(getTitle(cols, rows), name, isSet, rows, cols,
+                        previewUri, previewCount, iconPath));
             }
         } catch (Exception e) {
             mOptions = null;
         }
+        if (mOptions != null && !mOptions.isEmpty()) {
+            persistOptions(mOptions);
+        }
         return mOptions;
     }
 
+    /**
+     * Returns the grid options of the last successful {@link #fetch(boolean)}, possibly from a
+     * previous session, or null if there are none. These may be stale and are only meant to be
+     * shown while the options are being fetched again from the launcher.
+     */
+    @WorkerThread
+    @Nullable
+    List<GridOption> getPersistedOptions() {
+        if (!areGridsAvailable()) {
+            return null;
+        }
+        String snapshot = mPreferences.getGridOptionsSnapshot();
+        if (snapshot == null) {
+            return null;
+        }
+        String iconPath = getIconPath();
+        Uri previewUri = mPreviewUtils.getUri(PREVIEW);
+        List<GridOption> options = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(snapshot);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject option = array.getJSONObject(i);
+                int rows = option.getInt(COL_ROWS);
+                int cols = option.getInt(COL_COLS);
+                options.add(new GridOption(getTitle(cols, rows), option.getString(COL_NAME),
+                        option.getBoolean(COL_IS_DEFAULT), rows, cols, previewUri,
+                        option.getInt(COL_PREVIEW_COUNT), iconPath));
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Couldn't parse persisted grid options", e);
+            return null;
+        }
+        return options;
+    }
+
+    /**
+     * Returns the current icon mask path. Only the resource ID is cached, the path itself changes
+     * with the icon shape overlay.
+     */
+    private String getIconPath() {
+        if (mIconMaskResId == 0) {
+            mIconMaskResId = Resources.getSystem().getIdentifier(
+                    ResourceConstants.CONFIG_ICON_MASK, "string",
+                    ResourceConstants.ANDROID_PACKAGE);
+        }
+        return mContext.getResources().getString(mIconMaskResId);
+    }
+
+    private synchronized String getTitle(int cols, int rows) {
+        LocaleList locales = mContext.getResources().getConfiguration().getLocales();
+        if (!locales.equals(mTitlesLocales)) {
+            mTitles.clear();
+            mTitlesLocales = locales;
+        }
+        long key = ((long) cols << 32) | (rows & 0xFFFFFFFFL);
+        String title = mTitles.get(key);
+        if (title == null) {
+            title = mContext.getString(R.string.grid_title_pattern, cols, rows);
+            mTitles.put(key, title);
+        }
+        return title;
+    }
+
+    private void persistOptions(List<GridOption> options) {
+        JSONArray array = new JSONArray();
+        try {
+            for (GridOption option : options) {
+                array.put(new JSONObject()
+                        .put(COL_NAME, option.name)
+                        .put(COL_ROWS, option.rows)
+                        .put(COL_COLS, option.cols)
+                        .put(COL_PREVIEW_COUNT, option.previewPagesCount)
+                        .put(COL_IS_DEFAULT, option.isActive(/* manager= */ null)));
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Couldn't persist grid options", e);
+            return;
+        }
+        String snapshot = array.toString();
+        if (!snapshot.equals(mPersistedSnapshot)) {
+            mPersistedSnapshot = snapshot;
+            mPreferences.storeGridOptionsSnapshot(snapshot);
+        }
+    }
+
     /**
      * Request rendering of home screen preview via Launcher to Wallpaper using SurfaceView
      * @param name      the grid option name
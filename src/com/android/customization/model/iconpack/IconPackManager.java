@@ -15,9 +15,12 @@
  */
 package com.android.customization.model.iconpack;
 
+import static com.android.customization.model.ResourceConstants.ANDROID_PACKAGE;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_ANDROID;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_SETTINGS;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_SYSUI;
+import static com.android.customization.model.ResourceConstants.SETTINGS_PACKAGE;
+import static com.android.customization.model.ResourceConstants.SYSUI_PACKAGE;
 
 import android.content.Context;
 import android.os.Bundle;
@@ -25,13 +28,14 @@ import android.os.UserHandle;
 import android.provider.Settings;
 import android.text.TextUtils;
 import android.util.Log;
-import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 
 import com.android.customization.model.CustomizationManager;
+import com.android.customization.model.OverlayApplyTask;
 import com.android.customization.model.theme.OverlayManagerCompat;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.List;
 
@@ -42,7 +46,8 @@ public class IconPackManager implements CustomizationManager<IconPackOption> {
 
     private static IconPackManager sIconPackOptionManager;
     private Context mContext;
-    private IconPackOption mActiveOption;
+    // Written by the apply steps on the background thread.
+    private volatile IconPackOption mActiveOption;
     private OverlayManagerCompat mOverlayManager;
     private IconPackOptionProvider mProvider;
     private static final String TAG = "IconPackManager";
@@ -62,22 +67,40 @@ public class IconPackManager implements CustomizationManager<IconPackOption> {
 
     @Override
     public void apply(IconPackOption option, @Nullable Callback callback) {
-        if (!persistOverlay(option)) {
-            Toast failed = Toast.makeText(mContext, "Failed to apply icon pack, reboot to try again.", Toast.LENGTH_SHORT);
-            failed.show();
-            if (callback != null) {
-                callback.onError(null);
-            }
-            return;
-        }
+        applyAsync(option, callback);
+    }
+
+    /**
+     * Same as {@link #apply}, but returns the started apply so that the caller can cancel it.
+     */
+    public OverlayApplyTask applyAsync(IconPackOption option, @Nullable Callback callback) {
+        return OverlayApplyTask.start(mContext,
+                "Failed to apply icon pack, reboot to try again.", callback,
+                () -> persistOverlay(option),
+                () -> {
+                    // Runs after the steps of any earlier apply, so the active option is the one
+                    // applied last rather than the one active when this apply was requested.
+                    enableOverlay(option, mActiveOption);
+                    mActiveOption = option;
+                    return true;
+                });
+    }
+
+    private void enableOverlay(IconPackOption option, @Nullable IconPackOption previousOption) {
         if (option.isDefault()) {
-            if (mActiveOption.isDefault()) return;
-            mActiveOption.getOverlayPackages().forEach((category, overlay) -> mOverlayManager.disableOverlay(overlay, UserHandle.myUserId()));
-        }
-        if (callback != null) {
-            callback.onSuccess();
+            if (previousOption != null && previousOption.isDefault()) return;
+            if (previousOption == null) {
+                // The options haven't been fetched yet, disable whatever icon pack is enabled.
+                for (Map.Entry<String, String> entry : mOverlayManager.getEnabledOverlaysForTargets(
+                        ANDROID_PACKAGE, SETTINGS_PACKAGE, SYSUI_PACKAGE).entrySet()) {
+                    if (Arrays.asList(mCurrentCategories).contains(entry.getKey())) {
+                        mOverlayManager.disableOverlay(entry.getValue(), UserHandle.myUserId());
+                    }
+                }
+                return;
+            }
+            previousOption.getOverlayPackages().forEach((category, overlay) -> mOverlayManager.disableOverlay(overlay, UserHandle.myUserId()));
         }
-        mActiveOption = option;
     }
 
     @Override
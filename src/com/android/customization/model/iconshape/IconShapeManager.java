@@ -22,11 +22,11 @@ import android.content.Context;
 import android.os.UserHandle;
 import android.provider.Settings;
 import android.util.Log;
-import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 
 import com.android.customization.model.CustomizationManager;
+import com.android.customization.model.OverlayApplyTask;
 import com.android.customization.model.theme.OverlayManagerCompat;
 
 import java.util.List;
@@ -38,7 +38,8 @@ public class IconShapeManager implements CustomizationManager<IconShapeOption> {
 
     private static IconShapeManager sIconShapeOptionManager;
     private Context mContext;
-    private IconShapeOption mActiveOption;
+    // Written by the apply steps on the background thread.
+    private volatile IconShapeOption mActiveOption;
     private OverlayManagerCompat mOverlayManager;
     private IconShapeOptionProvider mProvider;
     private static final String TAG = "IconShapeManager";
@@ -57,16 +58,28 @@ public class IconShapeManager implements CustomizationManager<IconShapeOption> {
 
     @Override
     public void apply(IconShapeOption option, @Nullable Callback callback) {
-        if (!persistOverlay(option)) {
-            Toast failed = Toast.makeText(mContext, "Failed to apply font, reboot to try again.", Toast.LENGTH_SHORT);
-            failed.show();
-            if (callback != null) {
-                callback.onError(null);
-            }
-            return;
-        }
+        applyAsync(option, callback);
+    }
+
+    /**
+     * Same as {@link #apply}, but returns the started apply so that the caller can cancel it.
+     */
+    public OverlayApplyTask applyAsync(IconShapeOption option, @Nullable Callback callback) {
+        return OverlayApplyTask.start(mContext,
+                "Failed to apply icon shape, reboot to try again.", callback,
+                () -> persistOverlay(option),
+                () -> {
+                    // Runs after the steps of any earlier apply, so the active option is the one
+                    // applied last rather than the one active when this apply was requested.
+                    enableOverlay(option, mActiveOption);
+                    mActiveOption = option;
+                    return true;
+                });
+    }
+
+    private void enableOverlay(IconShapeOption option, @Nullable IconShapeOption previousOption) {
         if (option.getPackageName() == null) {
-            if (mActiveOption.getPackageName() == null) return;
+            if (previousOption != null && previousOption.getPackageName() == null) return;
             for (String overlay : mOverlayManager.getOverlayPackagesForCategory(
                     OVERLAY_CATEGORY_SHAPE, UserHandle.myUserId(), ANDROID_PACKAGE)) {
                 mOverlayManager.disableOverlay(overlay, UserHandle.myUserId());
@@ -74,10 +87,6 @@ public class IconShapeManager implements CustomizationManager<IconShapeOption> {
         } else {
             mOverlayManager.setEnabledExclusiveInCategory(option.getPackageName(), UserHandle.myUserId());
         }
-        if (callback != null) {
-            callback.onSuccess();
-        }
-        mActiveOption = option;
     }
 
     @Override
@@ -30,9 +30,19 @@ interface CustomizationPreferences : WallpaperPreferences {
 
     fun setThemedIconEnabled(enabled: Boolean)
 
+    fun getGridOptionsSnapshot(): String?
+
+    fun storeGridOptionsSnapshot(serializedGridOptions: String)
+
+    fun getClockMetadataSnapshot(): String?
+
+    fun storeClockMetadataSnapshot(serializedClockMetadata: String)
+
     companion object {
         const val KEY_CUSTOM_THEME = "themepicker_custom_theme"
         const val KEY_VISITED_PREFIX = "themepicker_visited_"
         const val KEY_THEMED_ICON_ENABLED = "themepicker_themed_icon_enabled"
+        const val KEY_GRID_OPTIONS_SNAPSHOT = "themepicker_grid_options_snapshot"
+        const val KEY_CLOCK_METADATA_SNAPSHOT = "themepicker_clock_metadata_snapshot"
     }
 }
@@ -53,4 +53,26 @@ open class DefaultCustomizationPreferences(context: Context) :
             .putBoolean(CustomizationPreferences.KEY_THEMED_ICON_ENABLED, enabled)
             .apply()
     }
+
+    override fun getGridOptionsSnapshot(): String? {
+        return sharedPrefs.getString(CustomizationPreferences.KEY_GRID_OPTIONS_SNAPSHOT, null)
+    }
+
+    override fun storeGridOptionsSnapshot(serializedGridOptions: String) {
+        sharedPrefs
+            .edit()
+            .putString(CustomizationPreferences.KEY_GRID_OPTIONS_SNAPSHOT, serializedGridOptions)
+            .apply()
+    }
+
+    override fun getClockMetadataSnapshot(): String? {
+        return sharedPrefs.getString(CustomizationPreferences.KEY_CLOCK_METADATA_SNAPSHOT, null)
+    }
+
+    override fun storeClockMetadataSnapshot(serializedClockMetadata: String) {
+        sharedPrefs
+            .edit()
+            .putString(CustomizationPreferences.KEY_CLOCK_METADATA_SNAPSHOT, serializedClockMetadata)
+            .apply()
+    }
 }
@@ -248,6 +248,7 @@ constructor(
                     getWallpaperInteractor(context),
                     getCurrentWallpaperInfoFactory(context),
                     getUserEventLogger(),
+                    bgDispatcher,
                 )
                 .also { keyguardQuickAffordancePickerViewModelFactory = it }
     }
@@ -324,15 +325,19 @@ constructor(
     }
 
     override fun getClockRegistry(context: Context): ClockRegistry {
-        return (clockRegistryProvider
-                ?: ClockRegistryProvider(
-                        context = context.applicationContext,
-                        coroutineScope = getApplicationCoroutineScope(),
-                        mainDispatcher = mainDispatcher,
-                        backgroundDispatcher = bgDispatcher,
-                    )
-                    .also { clockRegistryProvider = it })
-            .get()
+        return getClockRegistryProvider(context).get()
+    }
+
+    private fun getClockRegistryProvider(context: Context): ClockRegistryProvider {
+        return clockRegistryProvider
+            ?: ClockRegistryProvider(
+                    context = context.applicationContext,
+                    coroutineScope = getApplicationCoroutineScope(),
+                    mainDispatcher = mainDispatcher,
+                    backgroundDispatcher = bgDispatcher,
+                    preferences = getCustomizationPreferences(context),
+                )
+                .also { clockRegistryProvider = it }
     }
 
     override fun getClockPickerInteractor(
@@ -345,8 +350,11 @@ constructor(
                         ClockPickerRepositoryImpl(
                             secureSettingsRepository = getSecureSettingsRepository(appContext),
                             registry = getClockRegistry(appContext),
+                            isClockListSettled =
+                                getClockRegistryProvider(appContext).isClockListSettled,
                             scope = getApplicationCoroutineScope(),
                             mainDispatcher = mainDispatcher,
+                            backgroundDispatcher = bgDispatcher,
                         ),
                     snapshotRestorer = { getClockPickerSnapshotRestorer(appContext) },
                 )
@@ -377,6 +385,7 @@ constructor(
                         .getScreenSize(activity.windowManager.defaultDisplay),
                     WallpaperManager.getInstance(activity.applicationContext),
                     getClockRegistry(activity.applicationContext),
+                    getClockRegistryProvider(activity.applicationContext).metadataCache,
                 )
                 .also {
                     clockViewFactory = it
@@ -509,8 +518,7 @@ constructor(
                     ),
                     getUserEventLogger(),
                 ) { clockId ->
-                    clockId?.let { clockViewFactory.getController(clockId).config.isReactiveToTone }
-                        ?: false
+                    clockId?.let { clockViewFactory.isReactiveToTone(clockId) } ?: false
                 }
                 .also { clockSettingsViewModelFactory = it }
     }
@@ -533,7 +541,7 @@ constructor(
                     applicationScope = getApplicationCoroutineScope(),
                     repository =
                         GridRepositoryImpl(
-                            applicationScope = getApplicationCoroutineScope(),
+                            mainScope = mainScope,
                             manager = GridOptionsManager.getInstance(context),
                             backgroundDispatcher = bgDispatcher,
                             isGridApplyButtonEnabled =
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.picker.clock.data.repository
+
+import android.content.Context
+import android.content.Intent
+import android.content.pm.PackageManager
+import android.os.LocaleList
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import com.android.customization.module.CustomizationPreferences
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+
+/**
+ * Persists the static metadata of the clocks across sessions. This makes the list of clocks and
+ * their descriptions known before plugin discovery completes, and without creating the clock
+ * controllers.
+ *
+ * The list of clocks is keyed by the versions of the installed clock plugin packages. The metadata
+ * of the clocks is also keyed by the locales and UI mode it was read with, since descriptions are
+ * localized resources and clocks may resolve other resources differently in night mode. It is
+ * dropped, in memory too, as soon as either changes.
+ *
+ * Reading and writing happen on a dedicated background thread.
+ */
+class ClockMetadataCache
+@VisibleForTesting
+constructor(
+    private val context: Context,
+    private val preferences: CustomizationPreferences,
+    private val executor: Executor,
+) {
+
+    constructor(
+        context: Context,
+        preferences: CustomizationPreferences,
+    ) : this(context, preferences, Executors.newSingleThreadExecutor())
+
+    /** Static metadata of a clock, only known once its controller has been created once. */
+    data class ClockStaticMetadata(
+        val description: String,
+        val isReactiveToTone: Boolean,
+    )
+
+    private val metadata = ConcurrentHashMap<String, ClockStaticMetadata>()
+    @Volatile private var clockIds: Set<String> = emptySet()
+    // The configuration the entries of [metadata] were read with.
+    @Volatile private var locales: LocaleList = context.resources.configuration.locales
+    @Volatile private var uiMode: Int = context.resources.configuration.uiMode
+    // Only accessed on the executor.
+    private var pluginVersions: String? = null
+
+    private val _knownClockIds = MutableStateFlow<Set<String>?>(null)
+    /**
+     * The IDs of all the clocks available at the end of plugin discovery in a previous session
+     * with the same clock plugins installed, empty if unknown, or null until the cache is loaded.
+     */
+    val knownClockIds: StateFlow<Set<String>?> = _knownClockIds.asStateFlow()
+
+    init {
+        executor.execute { load() }
+    }
+
+    fun get(clockId: String): ClockStaticMetadata? {
+        invalidateIfConfigurationChanged()
+        return metadata[clockId]
+    }
+
+    fun put(clockId: String, description: String, isReactiveToTone: Boolean) {
+        invalidateIfConfigurationChanged()
+        val entry = ClockStaticMetadata(description, isReactiveToTone)
+        if (metadata.put(clockId, entry) != entry) {
+            executor.execute { persist() }
+        }
+    }
+
+    /** Stores the IDs of all the available clocks, once plugin discovery is complete. */
+    fun putClockIds(ids: Set<String>) {
+        if (clockIds != ids) {
+            clockIds = ids
+            executor.execute { persist() }
+        }
+    }
+
+    /** Drops the metadata read with locales or a UI mode other than the current ones. */
+    private fun invalidateIfConfigurationChanged() {
+        val configuration = context.resources.configuration
+        if (configuration.locales == locales && configuration.uiMode == uiMode) {
+            return
+        }
+        synchronized(this) {
+            if (configuration.locales == locales && configuration.uiMode == uiMode) {
+                return
+            }
+            metadata.clear()
+            locales = configuration.locales
+            uiMode = configuration.uiMode
+        }
+        executor.execute { persist() }
+    }
+
+    private fun load() {
+        val versions = getPluginVersions()
+        pluginVersions = versions
+        val snapshot = preferences.getClockMetadataSnapshot()
+        if (snapshot != null) {
+            try {
+                val json = JSONObject(snapshot)
+                if (json.getString(KEY_PLUGIN_VERSIONS) == versions) {
+                    val ids = json.getJSONArray(KEY_CLOCK_IDS)
+                    clockIds = (0 until ids.length()).map { ids.getString(it) }.toSet()
+                    if (
+                        json.has(KEY_UI_MODE) &&
+                            json.getInt(KEY_UI_MODE) == uiMode &&
+                            json.optString(KEY_LOCALES) == locales.toLanguageTags()
+                    ) {
+                        val clocks = json.getJSONArray(KEY_CLOCKS)
+                        for (i in 0 until clocks.length()) {
+                            val clock = clocks.getJSONObject(i)
+                            metadata.putIfAbsent(
+                                clock.getString(KEY_CLOCK_ID),
+                                ClockStaticMetadata(
+                                    description = clock.getString(KEY_DESCRIPTION),
+                                    isReactiveToTone = clock.getBoolean(KEY_IS_REACTIVE_TO_TONE),
+                                )
+                            )
+                        }
+                    }
+                }
+            } catch (e: JSONException) {
+                Log.w(TAG, "Couldn't parse persisted clock metadata", e)
+            }
+        }
+        _knownClockIds.value = clockIds
+    }
+
+    private fun persist() {
+        val versions = pluginVersions ?: return
+        val snapshot =
+            try {
+                JSONObject()
+                    .put(KEY_PLUGIN_VERSIONS, versions)
+                    .put(KEY_LOCALES, locales.toLanguageTags())
+                    .put(KEY_UI_MODE, uiMode)
+                    .put(KEY_CLOCK_IDS, JSONArray(clockIds))
+                    .put(
+                        KEY_CLOCKS,
+                        JSONArray().apply {
+                            metadata.forEach { (clockId, clock) ->
+                                put(
+                                    JSONObject()
+                                        .put(KEY_CLOCK_ID, clockId)
+                                        .put(KEY_DESCRIPTION, clock.description)
+                                        .put(KEY_IS_REACTIVE_TO_TONE, clock.isReactiveToTone)
+                                )
+                            }
+                        }
+                    )
+            } catch (e: JSONException) {
+                Log.w(TAG, "Couldn't persist clock metadata", e)
+                return
+            }
+        preferences.storeClockMetadataSnapshot(snapshot.toString())
+    }
+
+    /**
+     * Returns the versions of this app, which bundles the default clocks, and of the installed
+     * clock plugin packages.
+     *
+     * The app holds QUERY_ALL_PACKAGES, so every installed plugin package is visible to this query
+     * and updating any of them invalidates the cache.
+     */
+    private fun getPluginVersions(): String {
+        val packageManager = context.packageManager
+        val packageNames =
+            packageManager
+                .queryIntentServices(Intent(ACTION_CLOCK_PLUGIN), PackageManager.GET_META_DATA)
+                .map { it.serviceInfo.packageName }
+                .toSortedSet() + context.packageName
+        return packageNames.joinToString(separator = ",") { packageName ->
+            val versionCode =
+                try {
+                    packageManager.getPackageInfo(packageName, 0).longVersionCode
+                } catch (e: PackageManager.NameNotFoundException) {
+                    -1L
+                }
+            "$packageName:$versionCode"
+        }
+    }
+
+    companion object {
+        private const val TAG = "ClockMetadataCache"
+        // Same as ClockProviderPlugin.ACTION
+        private const val ACTION_CLOCK_PLUGIN = "com.android.systemui.action.PLUGIN_CLOCK_PROVIDER"
+        private const val KEY_PLUGIN_VERSIONS = "plugin_versions"
+        private const val KEY_LOCALES = "locales"
+        private const val KEY_UI_MODE = "ui_mode"
+        private const val KEY_CLOCK_IDS = "clock_ids"
+        private const val KEY_CLOCKS = "clocks"
+        private const val KEY_CLOCK_ID = "clock_id"
+        private const val KEY_DESCRIPTION = "description"
+        private const val KEY_IS_REACTIVE_TO_TONE = "is_reactive_to_tone"
+    }
+}
@@ -49,4 +49,10 @@ interface ClockPickerRepository {
     )
 
     suspend fun setClockSize(size: ClockSize)
+
+    /**
+     * Writes clock selection and color changes that are still buffered right away, instead of
+     * waiting for them to be quiet for a while. Call this when the user leaves the screen.
+     */
+    fun flushPendingChanges()
 }
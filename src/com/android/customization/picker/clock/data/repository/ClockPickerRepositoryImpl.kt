@@ -19,47 +19,77 @@ package com.android.customization.picker.clock.data.repository
 import android.provider.Settings
 import androidx.annotation.ColorInt
 import androidx.annotation.IntRange
+import androidx.annotation.MainThread
 import com.android.customization.picker.clock.shared.ClockSize
 import com.android.customization.picker.clock.shared.model.ClockMetadataModel
-import com.android.systemui.plugins.clocks.ClockMetadata
+import com.android.systemui.plugins.clocks.ClockSettings
 import com.android.systemui.shared.clocks.ClockRegistry
 import com.android.systemui.shared.settings.data.repository.SecureSettingsRepository
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.callbackFlow
 import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.mapLatest
 import kotlinx.coroutines.flow.mapNotNull
 import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
 import org.json.JSONObject
 
 /** Implementation of [ClockPickerRepository], using [ClockRegistry]. */
 class ClockPickerRepositoryImpl(
     private val secureSettingsRepository: SecureSettingsRepository,
     private val registry: ClockRegistry,
-    scope: CoroutineScope,
-    mainDispatcher: CoroutineDispatcher,
+    private val isClockListSettled: StateFlow<Boolean>,
+    private val scope: CoroutineScope,
+    private val mainDispatcher: CoroutineDispatcher,
+    backgroundDispatcher: CoroutineDispatcher,
 ) : ClockPickerRepository {
 
+    /**
+     * Clock setting changes that are waiting to be written to the [registry], or that were written
+     * but aren't reported by the [registry] yet. They are laid over what the [registry] reports.
+     */
+    private val pendingSettings = MutableStateFlow<PendingSettings?>(null)
+    private var writeJob: Job? = null
+    // Only accessed on the main thread.
+    private var isWriteListenerRegistered = false
+    /** Stops laying the pending changes over once the [registry] reports them as written. */
+    private val writeListener =
+        object : ClockRegistry.ClockChangeListener {
+            override fun onCurrentClockChanged() {
+                clearPendingSettingsIfWritten()
+            }
+
+            override fun onAvailableClocksChanged() {
+                clearPendingSettingsIfWritten()
+            }
+        }
+
     @OptIn(ExperimentalCoroutinesApi::class)
     override val allClocks: Flow<List<ClockMetadataModel>> =
         callbackFlow {
                 fun send() {
-                    val activeClockId = registry.activeClockId
-                    val allClocks =
-                        registry.getClocks().map {
-                            it.toModel(isSelected = it.clockId == activeClockId)
-                        }
-
-                    trySend(allClocks)
+                    trySend(
+                        AllClocksState(
+                            clockIds = registry.getClocks().map { it.clockId },
+                            activeClockId =
+                                pendingSettings.value?.clockId ?: registry.activeClockId,
+                        )
+                    )
                 }
 
                 val listener =
@@ -69,36 +99,51 @@ class ClockPickerRepositoryImpl(
                         }
                     }
                 registry.registerClockChangeListener(listener)
-                send()
-                awaitClose { registry.unregisterClockChangeListener(listener) }
+                // Also emits the current state right away.
+                val pendingSettingsJob = launch { pendingSettings.collect { send() } }
+                awaitClose {
+                    pendingSettingsJob.cancel()
+                    registry.unregisterClockChangeListener(listener)
+                }
             }
             .flowOn(mainDispatcher)
-            .mapLatest { allClocks ->
+            .mapLatest { state ->
                 // Loading list of clock plugins can cause many consecutive calls of
                 // onAvailableClocksChanged(). We only care about the final fully-initiated clock
-                // list. Delay to avoid unnecessary too many emits.
-                delay(100)
-                allClocks
+                // list, so while plugins are still being discovered, wait for the list to settle or
+                // to be quiet for a while. Once discovery has settled, emit right away.
+                if (!isClockListSettled.value) {
+                    withTimeoutOrNull(CLOCK_LIST_UPDATE_QUIET_PERIOD_MILLIS) {
+                        isClockListSettled.first { it }
+                    }
+                }
+                state
+            }
+            .distinctUntilChanged()
+            .map { state ->
+                state.clockIds.map { clockId ->
+                    toModel(clockId = clockId, isSelected = clockId == state.activeClockId)
+                }
             }
+            .flowOn(backgroundDispatcher)
 
     /** The currently-selected clock. This also emits the clock color information. */
     override val selectedClock: Flow<ClockMetadataModel> =
         callbackFlow {
                 fun send() {
-                    val activeClockId = registry.activeClockId
-                    val metadata = registry.settings?.metadata
-                    val model =
-                        registry
-                            .getClocks()
-                            .find { clockMetadata -> clockMetadata.clockId == activeClockId }
-                            ?.toModel(
-                                isSelected = true,
-                                selectedColorId = metadata?.getSelectedColorId(),
-                                colorTone = metadata?.getColorTone()
-                                        ?: ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS,
-                                seedColor = registry.seedColor
-                            )
-                    trySend(model)
+                    val pending = pendingSettings.value
+                    val activeClockId = pending?.clockId ?: registry.activeClockId
+                    trySend(
+                        SelectedClockState(
+                            clockId =
+                                activeClockId.takeIf { clockId ->
+                                    registry.getClocks().any { it.clockId == clockId }
+                                },
+                            metadata = registry.settings?.metadata,
+                            seedColor = registry.seedColor,
+                            pendingColor = pending?.takeIf { it.hasColor },
+                        )
+                    )
                 }
 
                 val listener =
@@ -112,18 +157,42 @@ class ClockPickerRepositoryImpl(
                         }
                     }
                 registry.registerClockChangeListener(listener)
-                send()
-                awaitClose { registry.unregisterClockChangeListener(listener) }
+                // Also emits the current state right away.
+                val pendingSettingsJob = launch { pendingSettings.collect { send() } }
+                awaitClose {
+                    pendingSettingsJob.cancel()
+                    registry.unregisterClockChangeListener(listener)
+                }
             }
             .flowOn(mainDispatcher)
-            .mapNotNull { it }
+            .mapNotNull { state ->
+                val clockId = state.clockId ?: return@mapNotNull null
+                val pendingColor = state.pendingColor
+                toModel(
+                    clockId = clockId,
+                    isSelected = true,
+                    selectedColorId =
+                        if (pendingColor != null) pendingColor.selectedColorId
+                        else state.metadata?.getSelectedColorId(),
+                    colorTone = pendingColor?.colorToneProgress
+                            ?: state.metadata?.getColorTone()
+                                ?: ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS,
+                    seedColor =
+                        if (pendingColor != null) pendingColor.seedColor else state.seedColor,
+                )
+            }
+            .distinctUntilChanged()
+            .flowOn(backgroundDispatcher)
 
     override suspend fun setSelectedClock(clockId: String) {
-        registry.mutateSetting { oldSettings ->
-            val newSettings = oldSettings.copy(clockId = clockId)
-            newSettings.metadata = oldSettings.metadata
-            newSettings
+        pendingSettings.update { pending ->
+            (pending ?: PendingSettings()).copy(
+                clockId = clockId,
+                isWritten = false,
+                replacedValues = null,
+            )
         }
+        scheduleWrite()
     }
 
     override suspend fun setClockColor(
@@ -131,14 +200,119 @@ class ClockPickerRepositoryImpl(
         @IntRange(from = 0, to = 100) colorToneProgress: Int,
         @ColorInt seedColor: Int?,
     ) {
+        pendingSettings.update { pending ->
+            (pending ?: PendingSettings()).copy(
+                hasColor = true,
+                selectedColorId = selectedColorId,
+                colorToneProgress = colorToneProgress,
+                seedColor = seedColor,
+                isWritten = false,
+                replacedValues = null,
+            )
+        }
+        scheduleWrite()
+    }
+
+    /** Hands the pending changes to the [registry] before returning, must be called on main. */
+    @MainThread
+    @Synchronized
+    override fun flushPendingChanges() {
+        writeJob?.cancel()
+        writeJob = null
+        writePendingSettings()
+    }
+
+    /**
+     * Writes the pending changes once no other change came in for a while, so that dragging the
+     * tone slider or swiping through the clocks results in a single settings mutation.
+     */
+    @Synchronized
+    private fun scheduleWrite() {
+        writeJob?.cancel()
+        writeJob =
+            scope.launch(mainDispatcher) {
+                delay(SETTINGS_WRITE_QUIET_PERIOD_MILLIS)
+                writePendingSettings()
+            }
+    }
+
+    @MainThread
+    private fun writePendingSettings() {
+        var written: PendingSettings? = null
+        pendingSettings.update { pending ->
+            written = pending?.takeUnless { it.isWritten }?.copy(isWritten = true)
+            written ?: pending
+        }
+        val settings = written ?: return
+        if (!isWriteListenerRegistered) {
+            // Registered for good, this repository lives as long as the process.
+            registry.registerClockChangeListener(writeListener)
+            isWriteListenerRegistered = true
+        }
         registry.mutateSetting { oldSettings ->
-            val newSettings = oldSettings.copy(seedColor = seedColor)
+            // Unless a newer change came in since, remember what the write replaces.
+            pendingSettings.compareAndSet(
+                settings,
+                settings.copy(replacedValues = oldSettings.toValues()),
+            )
+            val newSettings =
+                oldSettings.copy(
+                    clockId = settings.clockId ?: oldSettings.clockId,
+                    seedColor =
+                        if (settings.hasColor) settings.seedColor else oldSettings.seedColor,
+                )
             newSettings.metadata =
-                oldSettings.metadata
-                    .put(KEY_METADATA_SELECTED_COLOR_ID, selectedColorId)
-                    .put(KEY_METADATA_COLOR_TONE_PROGRESS, colorToneProgress)
+                if (settings.hasColor) {
+                    // The old metadata may still be parsed in the background by
+                    // [selectedClock], so it is copied rather than modified in place.
+                    JSONObject(oldSettings.metadata.toString())
+                        .put(KEY_METADATA_SELECTED_COLOR_ID, settings.selectedColorId)
+                        .put(KEY_METADATA_COLOR_TONE_PROGRESS, settings.colorToneProgress)
+                } else {
+                    oldSettings.metadata
+                }
             newSettings
         }
+        // The registry may have applied the changes already, or had the same values.
+        clearPendingSettingsIfWritten()
+    }
+
+    /**
+     * Clears the pending changes once they were written and the [registry] settings either match
+     * them or moved on from the settings they replaced, whether or not anything observes the clock
+     * settings at the time.
+     *
+     * The [registry] only reports some setting changes, e.g. not a change of the color metadata
+     * alone, so a later change made by someone else may be the first one reported.
+     */
+    @MainThread
+    private fun clearPendingSettingsIfWritten() {
+        val pending = pendingSettings.value ?: return
+        if (!pending.isWritten) {
+            return
+        }
+        val replacedValues = pending.replacedValues
+        val currentValues = registry.settings?.toValues()
+        if (
+            pending.isReflectedByRegistry() ||
+                (replacedValues != null && currentValues != null && currentValues != replacedValues)
+        ) {
+            pendingSettings.compareAndSet(pending, null)
+        }
+    }
+
+    private fun PendingSettings.isReflectedByRegistry(): Boolean {
+        if (clockId != null && clockId != registry.activeClockId) {
+            return false
+        }
+        if (hasColor) {
+            val metadata = registry.settings?.metadata
+            return seedColor == registry.seedColor &&
+                selectedColorId == metadata?.getSelectedColorId() &&
+                colorToneProgress ==
+                    (metadata?.getColorTone() ?: ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS)
+        }
+        return true
     }
 
     override val selectedClockSize: SharedFlow<ClockSize> =
@@ -179,7 +353,8 @@ class ClockPickerRepositoryImpl(
     }
 
     /** By default, [ClockMetadataModel] has no color information unless specified. */
-    private fun ClockMetadata.toModel(
+    private fun toModel(
+        clockId: String,
         isSelected: Boolean,
         selectedColorId: String? = null,
         @IntRange(from = 0, to = 100) colorTone: Int = 0,
@@ -194,6 +369,52 @@ class ClockPickerRepositoryImpl(
         )
     }
 
+    /** What [allClocks] reads from the [registry] on the main thread. */
+    private data class AllClocksState(
+        val clockIds: List<String>,
+        val activeClockId: String?,
+    )
+
+    /**
+     * What [selectedClock] reads from the [registry] on the main thread, the metadata is only
+     * parsed in the background.
+     */
+    private data class SelectedClockState(
+        val clockId: String?,
+        val metadata: JSONObject?,
+        @ColorInt val seedColor: Int?,
+        val pendingColor: PendingSettings?,
+    )
+
+    private fun ClockSettings.toValues(): SettingsValues {
+        return SettingsValues(
+            clockId = clockId,
+            seedColor = seedColor,
+            selectedColorId = metadata.getSelectedColorId(),
+            colorToneProgress = metadata.getColorTone(),
+        )
+    }
+
+    /** Clock setting changes merged since the last write. */
+    private data class PendingSettings(
+        val clockId: String? = null,
+        val hasColor: Boolean = false,
+        val selectedColorId: String? = null,
+        val colorToneProgress: Int = ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS,
+        @ColorInt val seedColor: Int? = null,
+        val isWritten: Boolean = false,
+        /** The [registry] settings the write replaced, once the [registry] took the write. */
+        val replacedValues: SettingsValues? = null,
+    )
+
+    /** The values of [ClockSettings] that this repository writes. */
+    private data class SettingsValues(
+        val clockId: String?,
+        @ColorInt val seedColor: Int?,
+        val selectedColorId: String?,
+        val colorToneProgress: Int,
+    )
+
     companion object {
         // The selected color in the color option list
         private const val KEY_METADATA_SELECTED_COLOR_ID = "metadataSelectedColorId"
@@ -201,6 +422,12 @@ class ClockPickerRepositoryImpl(
         // The color tone to apply to the selected color
         private const val KEY_METADATA_COLOR_TONE_PROGRESS = "metadataColorToneProgress"
 
+        // How long the clock list needs to be quiet to be emitted while plugins are loading
+        private const val CLOCK_LIST_UPDATE_QUIET_PERIOD_MILLIS = 100L
+
+        // How long clock setting changes need to be quiet before they are written
+        private const val SETTINGS_WRITE_QUIET_PERIOD_MILLIS = 300L
+
         // The default clock size is 1, which means dynamic
         private const val DEFAULT_CLOCK_SIZE = 1
     }
@@ -19,6 +19,7 @@ import android.app.NotificationManager
 import android.content.ComponentName
 import android.content.Context
 import android.view.LayoutInflater
+import com.android.customization.module.CustomizationPreferences
 import com.android.systemui.plugins.Plugin
 import com.android.systemui.plugins.PluginManager
 import com.android.systemui.shared.clocks.ClockRegistry
@@ -33,6 +34,13 @@ import com.android.wallpaper.module.InjectorProvider
 import java.util.concurrent.Executors
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
 
 /**
  * Provide the [ClockRegistry] singleton. Note that we need to make sure that the [PluginManager]
@@ -43,6 +51,7 @@ class ClockRegistryProvider(
     private val coroutineScope: CoroutineScope,
     private val mainDispatcher: CoroutineDispatcher,
     private val backgroundDispatcher: CoroutineDispatcher,
+    preferences: CustomizationPreferences,
 ) {
     private val clockRegistry: ClockRegistry by lazy {
         ClockRegistry(
@@ -61,13 +70,78 @@ class ClockRegistryProvider(
         )
     }
 
+    /** Static clock metadata persisted across sessions. */
+    val metadataCache = ClockMetadataCache(context, preferences)
+
+    private val _isClockListSettled = MutableStateFlow(false)
+    /**
+     * Whether plugin discovery has settled, which is when the list of available clocks contains
+     * all the clocks known from a previous session with the same plugins, or otherwise when it
+     * hasn't changed for [CLOCK_LIST_QUIET_PERIOD_MILLIS]. Once settled, it stays settled for the
+     * rest of the process.
+     */
+    val isClockListSettled: StateFlow<Boolean> = _isClockListSettled.asStateFlow()
+
+    private var settleJob: Job? = null
+    private val settleListener =
+        object : ClockRegistry.ClockChangeListener {
+            override fun onAvailableClocksChanged() {
+                if (!settleIfKnownClocksAvailable()) {
+                    restartQuietPeriod()
+                }
+            }
+        }
+
     init {
         // Listeners in ClockRegistry get cleaned up when app ended
         clockRegistry.registerListeners()
+        clockRegistry.registerClockChangeListener(settleListener)
+        restartQuietPeriod()
+        coroutineScope.launch(mainDispatcher) {
+            // The plugins discovered so far may already be all the known ones.
+            metadataCache.knownClockIds.first { it != null }
+            settleIfKnownClocksAvailable()
+        }
     }
 
     fun get() = clockRegistry
 
+    private fun restartQuietPeriod() {
+        settleJob?.cancel()
+        settleJob =
+            coroutineScope.launch(mainDispatcher) {
+                delay(CLOCK_LIST_QUIET_PERIOD_MILLIS)
+                settle()
+            }
+    }
+
+    /** Settles right away if all the clocks known from a previous session are available. */
+    private fun settleIfKnownClocksAvailable(): Boolean {
+        val knownClockIds = metadataCache.knownClockIds.value
+        if (_isClockListSettled.value || knownClockIds.isNullOrEmpty()) {
+            return false
+        }
+        val clockIds = clockRegistry.getClocks().map { it.clockId }
+        if (!clockIds.containsAll(knownClockIds)) {
+            return false
+        }
+        settle()
+        return true
+    }
+
+    private fun settle() {
+        if (_isClockListSettled.value) {
+            return
+        }
+        settleJob?.cancel()
+        metadataCache.putClockIds(clockRegistry.getClocks().map { it.clockId }.toSet())
+        _isClockListSettled.value = true
+        // This may be called while the registry notifies its listeners, unregister afterwards.
+        coroutineScope.launch(mainDispatcher) {
+            clockRegistry.unregisterClockChangeListener(settleListener)
+        }
+    }
+
     private fun createPluginManager(context: Context): PluginManager {
         val privilegedPlugins = listOf<String>()
         val isDebugDevice = true
@@ -124,4 +198,8 @@ class ClockRegistryProvider(
             listOf(),
         )
     }
+
+    companion object {
+        const val CLOCK_LIST_QUIET_PERIOD_MILLIS = 500L
+    }
 }
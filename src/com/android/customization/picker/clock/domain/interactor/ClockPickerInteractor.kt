@@ -78,6 +78,11 @@ class ClockPickerInteractor(
         setClockOption(ClockSnapshotModel(clockSize = size))
     }
 
+    /** Writes the clock setting changes that are still buffered by the repository. */
+    fun flushPendingChanges() {
+        repository.flushPendingChanges()
+    }
+
     suspend fun setClockOption(clockSnapshotModel: ClockSnapshotModel) {
         // [ClockCarouselViewModel] is monitoring the [ClockPickerInteractor.setSelectedClock] job,
         // so it needs to finish last.
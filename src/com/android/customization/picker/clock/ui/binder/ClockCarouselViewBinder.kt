@@ -116,6 +116,7 @@ object ClockCarouselViewBinder {
                     }
                     Lifecycle.Event.ON_PAUSE -> {
                         clockViewFactory.unregisterTimeTicker(source)
+                        viewModel.flushClockSettings()
                     }
                     else -> {}
                 }
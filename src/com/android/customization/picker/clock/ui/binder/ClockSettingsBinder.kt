@@ -264,6 +264,7 @@ object ClockSettingsBinder {
                     }
                     Lifecycle.Event.ON_PAUSE -> {
                         clockViewFactory.unregisterTimeTicker(source)
+                        viewModel.flushClockSettings()
                     }
                     else -> {}
                 }
@@ -190,7 +190,14 @@ class ClockCarouselView(
                         else (carousel.currentIndex - 1 + adapter.count()) % adapter.count()
                     val scalingUpClockId = adapter.clocks[scalingUpIdx].clockId
                     offCenterClockController = clockViewFactory.getController(scalingDownClockId)
-                    toCenterClockController = clockViewFactory.getController(scalingUpClockId)
+                    // A clock shown as a snapshot only scales up, its live view is only shown once
+                    // it's centered.
+                    toCenterClockController =
+                        if (adapter.isShownAsSnapshot(scalingUpClockId)) {
+                            null
+                        } else {
+                            clockViewFactory.getController(scalingUpClockId)
+                        }
                     offCenterClockScaleView = motionLayout.findViewById(R.id.clock_scale_view_2)
                     toCenterClockScaleView =
                         motionLayout.findViewById(
@@ -387,6 +394,8 @@ class ClockCarouselView(
         private val onClockSelected: (clock: ClockCarouselItemViewModel) -> Unit
     ) : Carousel.Adapter {
 
+        private val snapshotClockIds = HashSet<String>()
+
         fun getContentDescription(index: Int, resources: Resources): String {
             return clocks[index].contentDescription
         }
@@ -407,21 +416,36 @@ class ClockCarouselView(
                 getClockHostViewId(viewRoot.id)?.let { viewRoot.findViewById(it) as? ClockHostView }
                     ?: return
             val clockId = clocks[index].clockId
+            val isMiddleView = isMiddleView(viewRoot.id)
+
+            // Off-center large clocks show a snapshot, so that swiping doesn't have to lay out and
+            // draw the full clock hierarchy of every item, and only the centered clock needs a
+            // live controller.
+            val snapshotView =
+                if (clockSize == ClockSize.DYNAMIC && !isMiddleView) {
+                    clockViewFactory.getLargeSnapshotView(clockId)
+                } else {
+                    null
+                }
+            if (snapshotView != null) {
+                snapshotClockIds.add(clockId)
+            } else {
+                snapshotClockIds.remove(clockId)
+            }
 
             // Add the clock view to the cloc host view
             clockHostView.removeAllViews()
             val clockView =
-                when (clockSize) {
-                    ClockSize.DYNAMIC -> clockViewFactory.getLargeView(clockId)
-                    ClockSize.SMALL -> clockViewFactory.getSmallView(clockId)
-                }
+                snapshotView
+                    ?: when (clockSize) {
+                        ClockSize.DYNAMIC -> clockViewFactory.getLargeView(clockId)
+                        ClockSize.SMALL -> clockViewFactory.getSmallView(clockId)
+                    }
             // The clock view might still be attached to an existing parent. Detach before adding to
             // another parent.
             (clockView.parent as? ViewGroup)?.removeView(clockView)
             clockHostView.addView(clockView)
 
-            val isMiddleView = isMiddleView(viewRoot.id)
-
             // Accessibility
             viewRoot.contentDescription = getContentDescription(index, view.resources)
             viewRoot.isSelected = isMiddleView
@@ -430,6 +454,7 @@ class ClockCarouselView(
                 ClockSize.DYNAMIC ->
                     initializeDynamicClockView(
                         isMiddleView,
+                        snapshotView != null,
                         clockScaleView,
                         clockId,
                         clockHostView,
@@ -444,8 +469,13 @@ class ClockCarouselView(
             cardView.alpha = if (isMiddleView) 0f else 1f
         }
 
+        fun isShownAsSnapshot(clockId: String): Boolean {
+            return snapshotClockIds.contains(clockId)
+        }
+
         private fun initializeDynamicClockView(
             isMiddleView: Boolean,
+            isSnapshot: Boolean,
             clockScaleView: View,
             clockId: String,
             clockHostView: ClockHostView,
@@ -465,11 +495,14 @@ class ClockCarouselView(
             } else {
                 clockScaleView.scaleX = CLOCK_CAROUSEL_VIEW_SCALE
                 clockScaleView.scaleY = CLOCK_CAROUSEL_VIEW_SCALE
-                clockViewFactory
-                    .getController(clockId)
-                    .largeClock
-                    .animations
-                    .onPickerCarouselSwiping(0F)
+                // A snapshot is already rendered in the off-center state.
+                if (!isSnapshot) {
+                    clockViewFactory
+                        .getController(clockId)
+                        .largeClock
+                        .animations
+                        .onPickerCarouselSwiping(0F)
+                }
             }
         }
 
@@ -24,6 +24,16 @@ interface ClockViewFactory {
 
     fun getController(clockId: String): ClockController
 
+    /**
+     * Returns the description of the clock. Implementations may cache it, so that it's still known
+     * once the clock's controller has been released.
+     */
+    fun getDescription(clockId: String): String = getController(clockId).config.description
+
+    /** Returns whether the clock reacts to the color tone. May be cached like [getDescription]. */
+    fun isReactiveToTone(clockId: String): Boolean =
+        getController(clockId).config.isReactiveToTone
+
     /**
      * Reset the large view to its initial state when getting the view. This is because some view
      * configs, e.g. animation state, might change during the reuse of the clock view in the app.
@@ -36,12 +46,20 @@ interface ClockViewFactory {
      */
     fun getSmallView(clockId: String): View
 
+    /**
+     * Returns a view showing a snapshot of the large clock in its off-center carousel state, to be
+     * shown instead of the live view while the clock isn't centered. Returns null if snapshots
+     * aren't supported, in which case the live view should be used.
+     */
+    fun getLargeSnapshotView(clockId: String): View? = null
+
     fun updateColorForAllClocks(@ColorInt seedColor: Int?)
 
     fun updateColor(clockId: String, @ColorInt seedColor: Int?)
 
     fun updateRegionDarkness()
 
+    /** Updates the time format of the clock, if its controller has already been created. */
     fun updateTimeFormat(clockId: String)
 
     fun registerTimeTicker(owner: LifecycleOwner)
@@ -19,23 +19,44 @@ import android.app.WallpaperColors
 import android.app.WallpaperManager
 import android.content.Context
 import android.content.res.Resources
+import android.graphics.Bitmap
+import android.graphics.Canvas
 import android.graphics.Point
 import android.graphics.Rect
+import android.graphics.drawable.BitmapDrawable
+import android.os.Handler
+import android.os.Looper
+import android.util.LruCache
 import android.view.View
+import android.view.View.MeasureSpec
+import android.view.ViewTreeObserver
 import android.widget.FrameLayout
+import android.widget.ImageView
 import androidx.annotation.ColorInt
 import androidx.core.text.util.LocalePreferences
 import androidx.lifecycle.LifecycleOwner
+import com.android.customization.picker.clock.data.repository.ClockMetadataCache
 import com.android.systemui.plugins.clocks.ClockController
+import com.android.systemui.plugins.clocks.ClockFaceController
 import com.android.systemui.plugins.clocks.WeatherData
 import com.android.systemui.shared.clocks.ClockRegistry
 import com.android.themepicker.R
 import com.android.wallpaper.util.TimeUtils.TimeTicker
-import java.util.concurrent.ConcurrentHashMap
+import java.util.Collections
+import java.util.IdentityHashMap
+import kotlin.math.roundToInt
 
 /**
  * Provide reusable clock view and related util functions.
  *
+ * Clock controllers are kept in an LRU pool of at most [maxControllerCount] clocks, which should
+ * cover the selected clock and its carousel neighbors. Least recently used clocks whose views are
+ * not attached are evicted when the pool is full, and created again when requested.
+ *
+ * Off-center carousel clocks can be shown as snapshots instead, see [getLargeSnapshotView]. Those
+ * are rendered by separate clock controllers, which are never attached, so that rendering them
+ * doesn't disturb the live clocks.
+ *
  * @property screenSize The Activity or Fragment's window size.
  */
 class ClockViewFactoryImpl(
@@ -43,15 +64,97 @@ class ClockViewFactoryImpl(
     val screenSize: Point,
     private val wallpaperManager: WallpaperManager,
     private val registry: ClockRegistry,
+    private val metadataCache: ClockMetadataCache? = null,
+    private val maxControllerCount: Int = DEFAULT_MAX_CONTROLLER_COUNT,
 ) : ClockViewFactory {
     private val resources = appContext.resources
-    private val timeTickListeners: ConcurrentHashMap<Int, TimeTicker> = ConcurrentHashMap()
-    private val clockControllers: HashMap<String, ClockController> = HashMap()
-    private val smallClockFrames: HashMap<String, FrameLayout> = HashMap()
+    // A single time tick receiver is shared by all the registered lifecycle owners, it's only
+    // registered while there is at least one of them. Owners are told apart by identity, as
+    // distinct owners may have equal hash codes.
+    private val timeTickOwners: MutableSet<LifecycleOwner> =
+        Collections.newSetFromMap(IdentityHashMap())
+    private var timeTicker: TimeTicker? = null
+    // Iterated in access order, least recently used clock first.
+    private val clocks: LinkedHashMap<String, PooledClock> =
+        LinkedHashMap(/* initialCapacity= */ 16, /* loadFactor= */ 0.75f, /* accessOrder= */ true)
+    // Seed colors are kept outside of the pool, so that they can be restored on clocks created
+    // again after being evicted.
+    private val seedColors: HashMap<String, Int?> = HashMap()
+    private var hasSeedColorForAllClocks = false
+    // Descriptions are static, they don't need the controller to stay in the pool.
+    private val descriptions: HashMap<String, String> = HashMap()
+    @ColorInt private var seedColorForAllClocks: Int? = null
+    // The lock wallpaper darkness, queried once per lock wallpaper and invalidated when the
+    // wallpaper colors change, rather than once per clock.
+    @Volatile private var lockWallpaperDarkness: LockWallpaperDarkness? = null
+    private var wallpaperColorsListener: WallpaperManager.OnColorsChangedListener? = null
+    // Incremented on each time tick, so that snapshots showing an earlier time aren't reused.
+    private var timeTickCount = 0
+    private val largeClockSnapshots =
+        object : LruCache<SnapshotKey, Bitmap>(MAX_SNAPSHOT_CACHE_BYTES) {
+            override fun sizeOf(key: SnapshotKey, value: Bitmap): Int = value.allocationByteCount
+        }
+    // The controllers that render the snapshots, least recently used first.
+    private val snapshotControllers: LinkedHashMap<String, ClockController> =
+        object :
+            LinkedHashMap<String, ClockController>(
+                /* initialCapacity= */ 16,
+                /* loadFactor= */ 0.75f,
+                /* accessOrder= */ true,
+            ) {
+            override fun removeEldestEntry(
+                eldest: MutableMap.MutableEntry<String, ClockController>
+            ): Boolean = size > MAX_SNAPSHOT_CONTROLLER_COUNT
+        }
+    private val snapshotViews: HashMap<String, LargeClockSnapshotView> = HashMap()
+
+    /** The number of clock controllers created so far. */
+    var createdControllerCount = 0
+        private set
+
+    /** The number of clock controllers evicted from the pool so far. */
+    var evictedControllerCount = 0
+        private set
+
+    private val clockControllers: Collection<ClockController>
+        get() = clocks.values.map { it.controller }
 
     override fun getController(clockId: String): ClockController {
-        return clockControllers[clockId]
-            ?: initClockController(clockId).also { clockControllers[clockId] = it }
+        return getPooledClock(clockId).controller
+    }
+
+    override fun getDescription(clockId: String): String {
+        return descriptions[clockId]
+            ?: metadataCache?.get(clockId)?.description
+            ?: getController(clockId).config.description
+    }
+
+    override fun isReactiveToTone(clockId: String): Boolean {
+        return metadataCache?.get(clockId)?.isReactiveToTone
+            ?: getController(clockId).config.isReactiveToTone
+    }
+
+    private fun getPooledClock(clockId: String): PooledClock {
+        return clocks[clockId]
+            ?: PooledClock(initClockController(clockId)).also {
+                it.observeAttachState()
+                createdControllerCount++
+                clocks[clockId] = it
+                evictUnusedClocks(requestedClockId = clockId)
+            }
+    }
+
+    private fun evictUnusedClocks(requestedClockId: String) {
+        val iterator = clocks.entries.iterator()
+        while (clocks.size > maxControllerCount && iterator.hasNext()) {
+            // Clocks still on screen are skipped, the pool shrinks back once they are detached and
+            // more clocks are requested.
+            val (clockId, pooledClock) = iterator.next()
+            if (clockId != requestedClockId && !pooledClock.isAttached()) {
+                iterator.remove()
+                evictedControllerCount++
+            }
+        }
     }
 
     /**
@@ -70,17 +173,75 @@ class ClockViewFactoryImpl(
      * configs, e.g. translation X, might change during the reuse of the clock view in the app.
      */
     override fun getSmallView(clockId: String): View {
+        val pooledClock = getPooledClock(clockId)
         val smallClockFrame =
-            smallClockFrames[clockId]
+            pooledClock.smallClockFrame
                 ?: createSmallClockFrame().also {
-                    it.addView(getController(clockId).smallClock.view)
-                    smallClockFrames[clockId] = it
+                    it.addView(pooledClock.controller.smallClock.view)
+                    pooledClock.smallClockFrame = it
                 }
         smallClockFrame.translationX = 0F
         smallClockFrame.translationY = 0F
         return smallClockFrame
     }
 
+    override fun getLargeSnapshotView(clockId: String): View {
+        return snapshotViews.getOrPut(clockId) { LargeClockSnapshotView(clockId) }
+    }
+
+    /**
+     * Returns a snapshot of the large clock in its off-center state, as it would be drawn by the
+     * live clock scaled down to the given size.
+     */
+    private fun getLargeClockSnapshot(clockId: String, width: Int, height: Int): Bitmap {
+        val key =
+            SnapshotKey(
+                clockId = clockId,
+                seedColor = getSeedColor(clockId),
+                isRegionDark = isLockscreenWallpaperDark(),
+                is24HourFormat = android.text.format.DateFormat.is24HourFormat(appContext),
+                width = width,
+                height = height,
+                timeTickCount = timeTickCount,
+            )
+        return largeClockSnapshots.get(key)
+            ?: renderLargeClockSnapshot(key).also { largeClockSnapshots.put(key, it) }
+    }
+
+    private fun renderLargeClockSnapshot(key: SnapshotKey): Bitmap {
+        val controller =
+            snapshotControllers.getOrPut(key.clockId) { initClockController(key.clockId) }
+        val largeClock = controller.largeClock
+        controller.events.onSeedColorChanged(key.seedColor)
+        controller.events.onTimeFormatChanged(key.is24HourFormat)
+        largeClock.events.onRegionDarknessChanged(key.isRegionDark)
+        largeClock.events.onTimeTick()
+        largeClock.animations.onPickerCarouselSwiping(0F)
+        // Like in ClockHostView, the clock is laid out at screen size and scaled down. The view is
+        // never attached, so this can't disturb what's on screen.
+        val view = largeClock.view
+        view.measure(
+            MeasureSpec.makeMeasureSpec(screenSize.x, MeasureSpec.EXACTLY),
+            MeasureSpec.makeMeasureSpec(screenSize.y, MeasureSpec.EXACTLY),
+        )
+        view.layout(0, 0, screenSize.x, screenSize.y)
+        val snapshot = Bitmap.createBitmap(key.width, key.height, Bitmap.Config.ARGB_8888)
+        val canvas = Canvas(snapshot)
+        canvas.scale(key.width / screenSize.x.toFloat(), key.height / screenSize.y.toFloat())
+        view.draw(canvas)
+        return snapshot
+    }
+
+    @ColorInt
+    private fun getSeedColor(clockId: String): Int? {
+        return if (seedColors.containsKey(clockId)) seedColors[clockId] else seedColorForAllClocks
+    }
+
+    /** Renders the snapshots on screen again, e.g. after the time or their colors changed. */
+    private fun refreshSnapshotViews() {
+        snapshotViews.values.forEach { if (it.isAttachedToWindow) it.refresh() }
+    }
+
     private fun createSmallClockFrame(): FrameLayout {
         val smallClockFrame = FrameLayout(appContext)
         val layoutParams =
@@ -109,67 +270,128 @@ class ClockViewFactoryImpl(
         )
 
     override fun updateColorForAllClocks(@ColorInt seedColor: Int?) {
-        clockControllers.values.forEach { it.events.onSeedColorChanged(seedColor = seedColor) }
+        seedColors.clear()
+        hasSeedColorForAllClocks = true
+        seedColorForAllClocks = seedColor
+        clockControllers.forEach { it.events.onSeedColorChanged(seedColor = seedColor) }
+        refreshSnapshotViews()
     }
 
     override fun updateColor(clockId: String, @ColorInt seedColor: Int?) {
-        clockControllers[clockId]?.events?.onSeedColorChanged(seedColor)
+        seedColors[clockId] = seedColor
+        clocks[clockId]?.controller?.events?.onSeedColorChanged(seedColor)
+        snapshotViews[clockId]?.takeIf { it.isAttachedToWindow }?.refresh()
     }
 
     override fun updateRegionDarkness() {
+        // Setting a lock wallpaper with the same colors isn't reported as a colors change, so make
+        // sure the cached darkness is still for the current lock wallpaper.
+        val wallpaperId = wallpaperManager.getWallpaperId(WallpaperManager.FLAG_LOCK)
+        if (lockWallpaperDarkness?.wallpaperId != wallpaperId) {
+            lockWallpaperDarkness = null
+        }
         val isRegionDark = isLockscreenWallpaperDark()
-        clockControllers.values.forEach {
+        clockControllers.forEach {
             it.largeClock.events.onRegionDarknessChanged(isRegionDark)
             it.smallClock.events.onRegionDarknessChanged(isRegionDark)
         }
+        refreshSnapshotViews()
     }
 
     private fun isLockscreenWallpaperDark(): Boolean {
+        lockWallpaperDarkness?.let {
+            return it.isDark
+        }
+
+        registerWallpaperColorsListener()
+        val wallpaperId = wallpaperManager.getWallpaperId(WallpaperManager.FLAG_LOCK)
         val colors = wallpaperManager.getWallpaperColors(WallpaperManager.FLAG_LOCK)
-        return (colors?.colorHints?.and(WallpaperColors.HINT_SUPPORTS_DARK_TEXT)) == 0
+        val isDark = (colors?.colorHints?.and(WallpaperColors.HINT_SUPPORTS_DARK_TEXT)) == 0
+        lockWallpaperDarkness = LockWallpaperDarkness(wallpaperId, isDark)
+        return isDark
+    }
+
+    private fun registerWallpaperColorsListener() {
+        if (wallpaperColorsListener != null) {
+            return
+        }
+
+        // The lock screen shows the system wallpaper when there is no lock wallpaper, so changes
+        // to either of them invalidate the cached darkness.
+        val listener =
+            WallpaperManager.OnColorsChangedListener { _, _ -> lockWallpaperDarkness = null }
+        wallpaperManager.addOnColorsChangedListener(listener, Handler(Looper.getMainLooper()))
+        wallpaperColorsListener = listener
     }
 
     override fun updateTimeFormat(clockId: String) {
-        getController(clockId)
-            .events
-            .onTimeFormatChanged(android.text.format.DateFormat.is24HourFormat(appContext))
+        // Clocks created later get the current time format when they are initialized.
+        clocks[clockId]
+            ?.controller
+            ?.events
+            ?.onTimeFormatChanged(android.text.format.DateFormat.is24HourFormat(appContext))
+        snapshotViews[clockId]?.takeIf { it.isAttachedToWindow }?.refresh()
     }
 
     override fun registerTimeTicker(owner: LifecycleOwner) {
-        val hashCode = owner.hashCode()
-        if (timeTickListeners.keys.contains(hashCode)) {
+        if (!timeTickOwners.add(owner) || timeTicker != null) {
             return
         }
 
-        timeTickListeners[hashCode] = TimeTicker.registerNewReceiver(appContext) { onTimeTick() }
+        timeTicker = TimeTicker.registerNewReceiver(appContext) { onTimeTick() }
+        // Time went by while no ticks were received.
+        onTimeTick()
     }
 
     override fun onDestroy() {
-        timeTickListeners.forEach { (_, timeTicker) -> appContext.unregisterReceiver(timeTicker) }
-        timeTickListeners.clear()
-        clockControllers.clear()
-        smallClockFrames.clear()
+        timeTicker?.let { appContext.unregisterReceiver(it) }
+        timeTicker = null
+        timeTickOwners.clear()
+        wallpaperColorsListener?.let { wallpaperManager.removeOnColorsChangedListener(it) }
+        wallpaperColorsListener = null
+        lockWallpaperDarkness = null
+        clocks.clear()
+        snapshotViews.clear()
+        snapshotControllers.clear()
+        largeClockSnapshots.evictAll()
+        descriptions.clear()
+        seedColors.clear()
+        hasSeedColorForAllClocks = false
+        seedColorForAllClocks = null
     }
 
+    /**
+     * Only clocks that are on screen are ticked, the others are ticked as soon as they are attached
+     * or shown again. Likewise, snapshots are rendered again once they are attached.
+     */
     private fun onTimeTick() {
-        clockControllers.values.forEach {
-            it.largeClock.events.onTimeTick()
-            it.smallClock.events.onTimeTick()
+        timeTickCount++
+        clocks.values.forEach {
+            it.largeClock.tickIfShown()
+            it.smallClock.tickIfShown()
         }
+        refreshSnapshotViews()
     }
 
     override fun unregisterTimeTicker(owner: LifecycleOwner) {
-        val hashCode = owner.hashCode()
-        timeTickListeners[hashCode]?.let {
-            appContext.unregisterReceiver(it)
-            timeTickListeners.remove(hashCode)
+        if (!timeTickOwners.remove(owner) || timeTickOwners.isNotEmpty()) {
+            return
         }
+
+        timeTicker?.let { appContext.unregisterReceiver(it) }
+        timeTicker = null
     }
 
     private fun initClockController(clockId: String): ClockController {
         val controller =
             registry.createExampleClock(clockId).also { it?.initialize(resources, 0f, 0f) }
         checkNotNull(controller)
+        descriptions[clockId] = controller.config.description
+        metadataCache?.put(
+            clockId,
+            controller.config.description,
+            controller.config.isReactiveToTone,
+        )
 
         val isWallpaperDark = isLockscreenWallpaperDark()
         // Initialize large clock
@@ -208,6 +430,16 @@ class ClockViewFactoryImpl(
                 useCelsius = useCelsius,
             )
         )
+
+        // Restore the state of a clock evicted from the pool earlier.
+        if (seedColors.containsKey(clockId)) {
+            controller.events.onSeedColorChanged(seedColors[clockId])
+        } else if (hasSeedColorForAllClocks) {
+            controller.events.onSeedColorChanged(seedColorForAllClocks)
+        }
+        controller.events.onTimeFormatChanged(
+            android.text.format.DateFormat.is24HourFormat(appContext)
+        )
         return controller
     }
 
@@ -243,7 +475,146 @@ class ClockViewFactoryImpl(
         return Rect(getSmallClockStartPadding(), topMargin, screenSize.x, topMargin + targetHeight)
     }
 
+    private data class LockWallpaperDarkness(val wallpaperId: Int, val isDark: Boolean)
+
+    private data class SnapshotKey(
+        val clockId: String,
+        @ColorInt val seedColor: Int?,
+        val isRegionDark: Boolean,
+        val is24HourFormat: Boolean,
+        val width: Int,
+        val height: Int,
+        val timeTickCount: Int,
+    )
+
+    /**
+     * Shows the snapshot of a large clock. It's laid out at screen size inside a [ClockHostView],
+     * which scales it down, so the snapshot is rendered at the scaled down size and stretched back.
+     */
+    private inner class LargeClockSnapshotView(private val clockId: String) :
+        ImageView(appContext) {
+
+        init {
+            layoutParams =
+                FrameLayout.LayoutParams(
+                    FrameLayout.LayoutParams.MATCH_PARENT,
+                    FrameLayout.LayoutParams.MATCH_PARENT,
+                )
+            scaleType = ImageView.ScaleType.FIT_XY
+            importantForAccessibility = View.IMPORTANT_FOR_ACCESSIBILITY_NO
+        }
+
+        override fun onAttachedToWindow() {
+            super.onAttachedToWindow()
+            refresh()
+        }
+
+        override fun onLayout(changed: Boolean, left: Int, top: Int, right: Int, bottom: Int) {
+            super.onLayout(changed, left, top, right, bottom)
+            if (changed) {
+                refresh()
+            }
+        }
+
+        fun refresh() {
+            val scale = (parent as? View)?.scaleX ?: 1F
+            val snapshotWidth = (width * scale).roundToInt()
+            val snapshotHeight = (height * scale).roundToInt()
+            if (snapshotWidth <= 0 || snapshotHeight <= 0) {
+                return
+            }
+            val snapshot = getLargeClockSnapshot(clockId, snapshotWidth, snapshotHeight)
+            if ((drawable as? BitmapDrawable)?.bitmap !== snapshot) {
+                setImageBitmap(snapshot)
+            }
+        }
+    }
+
+    private class PooledClock(val controller: ClockController) {
+        var smallClockFrame: FrameLayout? = null
+        val largeClock = TickedClockFace(controller.largeClock)
+        val smallClock = TickedClockFace(controller.smallClock)
+
+        fun isAttached(): Boolean {
+            return largeClock.face.view.isAttachedToWindow ||
+                smallClock.face.view.isAttachedToWindow
+        }
+
+        fun observeAttachState() {
+            largeClock.observeAttachState()
+            smallClock.observeAttachState()
+        }
+    }
+
+    /** A clock face that catches up on the time ticks it missed while it wasn't on screen. */
+    private class TickedClockFace(val face: ClockFaceController) {
+        private var isStale = false
+        // Only set while the view is attached but hidden and stale, the view isn't told when it's
+        // shown again so its window is asked before each frame instead.
+        private var preDrawObserver: ViewTreeObserver? = null
+        private val preDrawListener =
+            ViewTreeObserver.OnPreDrawListener {
+                catchUpIfShown()
+                true
+            }
+
+        fun tickIfShown() {
+            if (face.view.isAttachedToWindow && face.view.isShown) {
+                face.events.onTimeTick()
+                isStale = false
+            } else {
+                isStale = true
+                if (face.view.isAttachedToWindow) {
+                    observePreDraw()
+                }
+            }
+        }
+
+        fun observeAttachState() {
+            face.view.addOnAttachStateChangeListener(
+                object : View.OnAttachStateChangeListener {
+                    override fun onViewAttachedToWindow(view: View) {
+                        catchUpIfShown()
+                    }
+
+                    override fun onViewDetachedFromWindow(view: View) {
+                        stopObservingPreDraw()
+                    }
+                }
+            )
+        }
+
+        private fun catchUpIfShown() {
+            if (!isStale) {
+                stopObservingPreDraw()
+            } else if (face.view.isShown) {
+                face.events.onTimeTick()
+                isStale = false
+                stopObservingPreDraw()
+            } else {
+                observePreDraw()
+            }
+        }
+
+        private fun observePreDraw() {
+            if (preDrawObserver == null) {
+                preDrawObserver =
+                    face.view.viewTreeObserver.also { it.addOnPreDrawListener(preDrawListener) }
+            }
+        }
+
+        private fun stopObservingPreDraw() {
+            preDrawObserver?.takeIf { it.isAlive }?.removeOnPreDrawListener(preDrawListener)
+            preDrawObserver = null
+        }
+    }
+
     companion object {
+        /** The 5 carousel items, plus the clock settings preview and one spare. */
+        const val DEFAULT_MAX_CONTROLLER_COUNT = 7
+        /** The off-center carousel items. */
+        private const val MAX_SNAPSHOT_CONTROLLER_COUNT = 4
+        private const val MAX_SNAPSHOT_CACHE_BYTES = 8 * 1024 * 1024
         const val DESCRIPTION_PLACEHODLER = ""
         const val TEMPERATURE_FAHRENHEIT_PLACEHOLDER = 58
         const val TEMPERATURE_CELSIUS_PLACEHOLDER = 21
@@ -18,5 +18,10 @@ package com.android.customization.picker.clock.ui.viewmodel
 class ClockCarouselItemViewModel(
     val clockId: String,
     val isSelected: Boolean,
-    val contentDescription: String,
-)
+    getContentDescription: () -> String,
+) {
+    /**
+     * Only resolved when first read, which is when the clock is about to be shown in the carousel.
+     */
+    val contentDescription: String by lazy(getContentDescription)
+}
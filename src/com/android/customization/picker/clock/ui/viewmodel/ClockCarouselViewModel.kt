@@ -28,14 +28,12 @@ import com.android.themepicker.R
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.Job
-import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.mapLatest
 import kotlinx.coroutines.flow.mapNotNull
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
@@ -54,16 +52,15 @@ class ClockCarouselViewModel(
     @OptIn(ExperimentalCoroutinesApi::class)
     val allClocks: StateFlow<List<ClockCarouselItemViewModel>> =
         interactor.allClocks
-            .mapLatest { allClocks ->
-                // Delay to avoid the case that the full list of clocks is not initiated.
-                delay(CLOCKS_EVENT_UPDATE_DELAY_MILLIS)
+            .map { allClocks ->
+                // The repository only emits the clock list once it's fully initiated.
                 allClocks.map {
-                    val contentDescription =
+                    ClockCarouselItemViewModel(it.clockId, it.isSelected) {
                         resources.getString(
                             R.string.select_clock_action_description,
-                            clockViewFactory.getController(it.clockId).config.description
+                            clockViewFactory.getDescription(it.clockId),
                         )
-                    ClockCarouselItemViewModel(it.clockId, it.isSelected, contentDescription)
+                    }
                 }
             }
             // makes sure that the operations above this statement are executed on I/O dispatcher
@@ -135,6 +132,11 @@ class ClockCarouselViewModel(
             }
     }
 
+    /** Writes the clock selection right away, e.g. when leaving the screen. */
+    fun flushClockSettings() {
+        interactor.flushPendingChanges()
+    }
+
     class Factory(
         private val interactor: ClockPickerInteractor,
         private val backgroundDispatcher: CoroutineDispatcher,
@@ -156,7 +158,6 @@ class ClockCarouselViewModel(
     }
 
     companion object {
-        const val CLOCKS_EVENT_UPDATE_DELAY_MILLIS: Long = 100
         const val CARD_COLOR_CHANGE_LUMINANCE_THRESHOLD_LIGHT_THEME: Float = 0.85f
         const val CARD_COLOR_CHANGE_LUMINANCE_THRESHOLD_DARK_THEME: Float = 0.03f
     }
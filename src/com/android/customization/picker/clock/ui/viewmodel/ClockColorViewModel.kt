@@ -30,13 +30,37 @@ data class ClockColorViewModel(
     private val colorToneMax: Double,
 ) {
 
+    /**
+     * The color blended with the tone of each slider progress, boxed once so that dragging the
+     * slider doesn't allocate.
+     */
+    private val seedColors: Array<Int?> =
+        Array(MAX_PROGRESS + 1) { progress ->
+            ClockSettingsViewModel.blendColorWithTone(color, getColorTone(progress))
+        }
+
     fun getColorTone(progress: Int): Double {
         return colorToneMin + (progress.toDouble() * (colorToneMax - colorToneMin)) / 100
     }
 
+    /** Returns [color] blended with the tone of the given slider progress. */
+    @ColorInt
+    fun getSeedColor(progress: Int): Int {
+        return seedColors[progress.coerceIn(0, MAX_PROGRESS)]!!
+    }
+
+    /**
+     * Same as [getSeedColor], but returns the instance boxed up front, for the per frame seed color
+     * updates of [ClockSettingsViewModel] to store as is.
+     */
+    internal fun getBoxedSeedColor(progress: Int): Int? {
+        return seedColors[progress.coerceIn(0, MAX_PROGRESS)]
+    }
+
     companion object {
         private const val DEFAULT_COLOR_TONE_MIN = 0
         private const val DEFAULT_COLOR_TONE_MAX = 100
+        private const val MAX_PROGRESS = 100
 
         fun getPresetColorMap(resources: Resources): Map<String, ClockColorViewModel> {
             val ids = resources.getStringArray(R.array.clock_color_ids)
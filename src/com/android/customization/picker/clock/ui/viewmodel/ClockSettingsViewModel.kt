@@ -16,6 +16,7 @@
 package com.android.customization.picker.clock.ui.viewmodel
 
 import android.content.Context
+import android.view.Choreographer
 import androidx.core.graphics.ColorUtils
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
@@ -27,6 +28,7 @@ import com.android.customization.picker.clock.domain.interactor.ClockPickerInter
 import com.android.customization.picker.clock.shared.ClockSize
 import com.android.customization.picker.clock.shared.model.ClockMetadataModel
 import com.android.customization.picker.clock.shared.toClockSizeForLogging
+import com.android.customization.picker.common.shared.OptionSelectionState
 import com.android.customization.picker.color.domain.interactor.ColorPickerInteractor
 import com.android.customization.picker.color.shared.model.ColorOptionModel
 import com.android.customization.picker.color.shared.model.ColorType
@@ -74,6 +76,16 @@ private constructor(
     private val selectedColorId: StateFlow<String?> =
         clockPickerInteractor.selectedColorId.stateIn(viewModelScope, SharingStarted.Eagerly, null)
 
+    /**
+     * Selection state of the clock color options, keyed by color ID. The default theme color option
+     * has the `null` key.
+     */
+    private val colorOptionSelection = OptionSelectionState<String?>(initialSelectedKey = null)
+
+    init {
+        viewModelScope.launch { selectedColorId.collect { colorOptionSelection.select(it) } }
+    }
+
     private val sliderColorToneProgress =
         MutableStateFlow(ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS)
     val isSliderEnabled: Flow<Boolean> =
@@ -91,30 +103,34 @@ private constructor(
     private val _seedColor: MutableStateFlow<Int?> = MutableStateFlow(null)
     val seedColor: Flow<Int?> = merge(clockPickerInteractor.seedColor, _seedColor)
 
+    private var isSeedColorUpdateScheduled = false
+    private val seedColorUpdate =
+        Choreographer.FrameCallback {
+            isSeedColorUpdateScheduled = false
+            val selectedColorId = selectedColorId.value ?: return@FrameCallback
+            val clockColorViewModel = colorMap[selectedColorId] ?: return@FrameCallback
+            _seedColor.value =
+                clockColorViewModel.getBoxedSeedColor(sliderColorToneProgress.value)
+        }
+
     /**
      * The slider color tone updates are quick. Do not set color tone and the blended color to the
      * settings until [onSliderProgressStop] is called. Update to a locally cached temporary
-     * [sliderColorToneProgress] and [_seedColor] instead.
+     * [sliderColorToneProgress] and [_seedColor] instead. Slider events can come faster than the
+     * display refreshes, so [_seedColor], which recolors the clock, is only updated once per frame.
      */
     fun onSliderProgressChanged(progress: Int) {
         sliderColorToneProgress.value = progress
-        val selectedColorId = selectedColorId.value ?: return
-        val clockColorViewModel = colorMap[selectedColorId] ?: return
-        _seedColor.value =
-            blendColorWithTone(
-                color = clockColorViewModel.color,
-                colorTone = clockColorViewModel.getColorTone(progress),
-            )
+        if (!isSeedColorUpdateScheduled) {
+            isSeedColorUpdateScheduled = true
+            Choreographer.getInstance().postFrameCallback(seedColorUpdate)
+        }
     }
 
     suspend fun onSliderProgressStop(progress: Int) {
         val selectedColorId = selectedColorId.value ?: return
         val clockColorViewModel = colorMap[selectedColorId] ?: return
-        val seedColor =
-            blendColorWithTone(
-                color = clockColorViewModel.color,
-                colorTone = clockColorViewModel.getColorTone(progress),
-            )
+        val seedColor = clockColorViewModel.getSeedColor(progress)
         clockPickerInteractor.setClockColor(
             selectedColorId = selectedColorId,
             colorToneProgress = progress,
@@ -140,10 +156,7 @@ private constructor(
                 }
 
                 colorMap.values.forEachIndexed { index, colorModel ->
-                    val isSelectedFlow =
-                        selectedColorId
-                            .map { colorMap.keys.indexOf(it) == index }
-                            .stateIn(viewModelScope)
+                    val isSelectedFlow = colorOptionSelection.isSelected(colorModel.colorId)
                     val colorToneProgress = ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS
                     add(
                         OptionItemViewModel<ColorOptionIconViewModel>(
@@ -176,13 +189,7 @@ private constructor(
                                         {
                                             viewModelScope.launch {
                                                 val seedColor =
-                                                    blendColorWithTone(
-                                                        color = colorModel.color,
-                                                        colorTone =
-                                                            colorModel.getColorTone(
-                                                                colorToneProgress,
-                                                            ),
-                                                    )
+                                                    colorModel.getSeedColor(colorToneProgress)
                                                 clockPickerInteractor.setClockColor(
                                                     selectedColorId = colorModel.colorId,
                                                     colorToneProgress = colorToneProgress,
@@ -202,12 +209,12 @@ private constructor(
     @OptIn(ExperimentalCoroutinesApi::class)
     val selectedColorOptionPosition: Flow<Int> =
         colorOptions.flatMapLatest { colorOptions ->
-            combine(colorOptions.map { colorOption -> colorOption.isSelected }) { selectedFlags ->
-                selectedFlags.indexOfFirst { it }
+            colorOptionSelection.selectedKeys.map {
+                colorOptions.indexOfFirst { colorOption -> colorOption.isSelected.value }
             }
         }
 
-    private suspend fun ColorOptionModel.toOptionItemViewModel(
+    private fun ColorOptionModel.toOptionItemViewModel(
         context: Context
     ): OptionItemViewModel<ColorOptionIconViewModel> {
         val lightThemeColors =
@@ -222,7 +229,7 @@ private constructor(
                 /** darkTheme= */
                 true
             )
-        val isSelectedFlow = selectedColorId.map { it == null }.stateIn(viewModelScope)
+        val isSelectedFlow = colorOptionSelection.isSelected(null)
         return OptionItemViewModel<ColorOptionIconViewModel>(
             key = MutableStateFlow(key) as StateFlow<String>,
             payload =
@@ -260,6 +267,19 @@ private constructor(
         )
     }
 
+    /** Writes the clock color changes right away, e.g. when leaving the screen. */
+    fun flushClockSettings() {
+        clockPickerInteractor.flushPendingChanges()
+    }
+
+    override fun onCleared() {
+        clockPickerInteractor.flushPendingChanges()
+        if (isSeedColorUpdateScheduled) {
+            Choreographer.getInstance().removeFrameCallback(seedColorUpdate)
+            isSeedColorUpdateScheduled = false
+        }
+    }
+
     val selectedClockSize: Flow<ClockSize> = clockPickerInteractor.selectedClockSize
 
     fun setClockSize(size: ClockSize) {
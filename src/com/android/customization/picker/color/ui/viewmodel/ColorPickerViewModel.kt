@@ -22,7 +22,9 @@ import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.viewModelScope
 import com.android.customization.model.color.ColorOptionImpl
 import com.android.customization.module.logging.ThemesUserEventLogger
+import com.android.customization.picker.common.shared.OptionSelectionState
 import com.android.customization.picker.color.domain.interactor.ColorPickerInteractor
+import com.android.customization.picker.color.shared.model.ColorOptionModel
 import com.android.customization.picker.color.shared.model.ColorType
 import com.android.themepicker.R
 import com.android.wallpaper.picker.common.text.ui.viewmodel.Text
@@ -31,10 +33,13 @@ import kotlin.math.max
 import kotlin.math.min
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.shareIn
 import kotlinx.coroutines.launch
 
 /** Models UI state for a color picker experience. */
@@ -90,10 +95,29 @@ private constructor(
             }
         }
 
+    /**
+     * The keys of the selected color options, shared by the options of all color types. All the
+     * options equivalent to the one being applied are selected, so the same colors show as
+     * selected in every tab.
+     */
+    private val colorOptionSelection = OptionSelectionState<String>(initialSelectedKeys = setOf())
+
+    /** The color options of all color types, loaded once for all the collectors. */
+    private val colorOptionModels: Flow<Map<ColorType, List<ColorOptionModel>>> =
+        combine(interactor.colorOptions, interactor.selectingColorOption, ::Pair)
+            .onEach { (colorOptions, selectingColorOption) ->
+                colorOptionSelection.selectAll(
+                    getSelectedColorOptionKeys(colorOptions, selectingColorOption)
+                )
+            }
+            .map { (colorOptions, _) -> colorOptions }
+            .distinctUntilChanged { old, new -> old === new }
+            .shareIn(viewModelScope, SharingStarted.WhileSubscribed(), replay = 1)
+
     /** The list of all color options mapped by their color type */
     private val allColorOptions:
         Flow<Map<ColorType, List<OptionItemViewModel<ColorOptionIconViewModel>>>> =
-        interactor.colorOptions.map { colorOptions ->
+        colorOptionModels.map { colorOptions ->
             colorOptions
                 .map { colorOptionEntry ->
                     colorOptionEntry.key to
@@ -105,12 +129,7 @@ private constructor(
                             val darkThemeColors =
                                 colorOption.previewInfo.resolveColors(/* darkTheme= */ true)
                             val isSelectedFlow: StateFlow<Boolean> =
-                                interactor.selectingColorOption
-                                    .map {
-                                        it?.colorOption?.isEquivalent(colorOptionModel.colorOption)
-                                            ?: colorOptionModel.isSelected
-                                    }
-                                    .stateIn(viewModelScope)
+                                colorOptionSelection.isSelected(colorOptionModel.key)
                             OptionItemViewModel<ColorOptionIconViewModel>(
                                 key = MutableStateFlow(colorOptionModel.key) as StateFlow<String>,
                                 payload =
@@ -156,6 +175,22 @@ private constructor(
                 .toMap()
         }
 
+    /**
+     * Returns the keys of the options equivalent to the color option being applied if there is
+     * one, or of the active color options otherwise.
+     */
+    private fun getSelectedColorOptionKeys(
+        colorOptions: Map<ColorType, List<ColorOptionModel>>,
+        selectingColorOption: ColorOptionModel?,
+    ): Set<String> {
+        return colorOptions.values
+            .flatten()
+            .filter {
+                selectingColorOption?.colorOption?.isEquivalent(it.colorOption) ?: it.isSelected
+            }
+            .mapTo(HashSet()) { it.key }
+    }
+
     /** The list of all available color options for the selected Color Type. */
     val colorOptions: Flow<List<OptionItemViewModel<ColorOptionIconViewModel>>> =
         combine(allColorOptions, selectedColorTypeTabId) {
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.picker.common.shared
+
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+
+/**
+ * Holds the keys of the selected options of a list of options, and the per-option selection state
+ * derived from them. Usually a single option is selected, but lists that show equivalent options
+ * in several places can select all of them.
+ *
+ * The per-option [StateFlow]s are created lazily, are plain state holders that don't need a
+ * coroutine scope, and are shared by every option with the same key, including across reloads of
+ * the list. Changing the selection only updates the flows of the keys that were or become
+ * selected.
+ */
+class OptionSelectionState<K>(initialSelectedKeys: Set<K>) {
+
+    constructor(initialSelectedKey: K) : this(setOf(initialSelectedKey))
+
+    private val _selectedKeys = MutableStateFlow(initialSelectedKeys)
+    /** The keys of the selected options. */
+    val selectedKeys: StateFlow<Set<K>> = _selectedKeys.asStateFlow()
+
+    private val isSelectedByKey = HashMap<K, MutableStateFlow<Boolean>>()
+
+    /** Returns whether the option with the given key is selected. */
+    @Synchronized
+    fun isSelected(key: K): StateFlow<Boolean> {
+        return isSelectedByKey
+            .getOrPut(key) { MutableStateFlow(key in _selectedKeys.value) }
+            .asStateFlow()
+    }
+
+    /** Selects the option with the given key, and only it. */
+    fun select(key: K) {
+        selectAll(setOf(key))
+    }
+
+    /** Selects the options with the given keys, and only them. */
+    @Synchronized
+    fun selectAll(keys: Set<K>) {
+        val previousKeys = _selectedKeys.value
+        if (previousKeys == keys) {
+            return
+        }
+        // Update the per-option state first, so it's consistent by the time the new selected keys
+        // are observed.
+        (previousKeys - keys).forEach { isSelectedByKey[it]?.value = false }
+        (keys - previousKeys).forEach { isSelectedByKey[it]?.value = true }
+        _selectedKeys.value = keys
+    }
+}
@@ -32,6 +32,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.android.customization.model.CustomizationManager.Callback;
 import com.android.customization.model.CustomizationManager.OptionsFetchedListener;
 import com.android.customization.model.CustomizationOption;
+import com.android.customization.model.OverlayApplyTask;
 import com.android.customization.model.theme.OverlayManagerCompat;
 import com.android.customization.module.logging.ThemesUserEventLogger;
 import com.android.customization.picker.WallpaperPreviewer;
@@ -70,6 +71,7 @@ public class FontFragment extends AppbarFragment {
     private ViewGroup mContent;
     private View mError;
     private BottomActionBar mBottomActionBar;
+    @Nullable private OverlayApplyTask mPendingApply;
 
     private final Callback mApplyFontCallback = new Callback() {
         @Override
@@ -113,6 +115,12 @@ public class FontFragment extends AppbarFragment {
         return view;
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        cancelPendingApply();
+    }
+
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -131,7 +139,15 @@ public class FontFragment extends AppbarFragment {
 
     private void applyFontOption(FontOption fontOption) {
         mBottomActionBar.disableActions();
-        mFontManager.apply(fontOption, mApplyFontCallback);
+        cancelPendingApply();
+        mPendingApply = mFontManager.applyAsync(fontOption, mApplyFontCallback);
+    }
+
+    private void cancelPendingApply() {
+        if (mPendingApply != null) {
+            mPendingApply.cancel();
+            mPendingApply = null;
+        }
     }
 
     private void setUpOptions(@Nullable Bundle savedInstanceState) {
@@ -141,6 +157,7 @@ public class FontFragment extends AppbarFragment {
             @Override
             public void onOptionsLoaded(List<FontOption> options) {
                 mLoading.hide();
+                FontOption.precomputeText(options);
                 mOptionsController = new OptionSelectorController<>(
                         mOptionsContainer, options, /* useGrid= */ false, CheckmarkStyle.CORNER);
                 mOptionsController.initOptions(mFontManager);
@@ -22,16 +22,18 @@ import com.android.customization.model.CustomizationManager
 import com.android.customization.model.CustomizationManager.Callback
 import com.android.customization.model.grid.GridOption
 import com.android.customization.model.grid.GridOptionsManager
+import com.android.customization.picker.common.shared.OptionSelectionState
 import com.android.customization.picker.grid.shared.model.GridOptionItemModel
 import com.android.customization.picker.grid.shared.model.GridOptionItemsModel
 import kotlin.coroutines.resume
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.android.awaitFrame
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.MutableStateFlow
-import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.suspendCancellableCoroutine
 import kotlinx.coroutines.withContext
 
@@ -39,6 +41,11 @@ interface GridRepository {
     suspend fun isAvailable(): Boolean
     fun getOptionChanges(): Flow<Unit>
     suspend fun getOptions(): GridOptionItemsModel
+    /**
+     * Returns the options persisted by the last successful [getOptions], possibly from a previous
+     * session, or null if there are none. These may be stale and should be revalidated.
+     */
+    suspend fun getPersistedOptions(): GridOptionItemsModel.Loaded?
     fun getSelectedOption(): GridOption?
     fun applySelectedOption(callback: Callback)
     fun clearSelectedOption()
@@ -46,7 +53,7 @@ interface GridRepository {
 }
 
 class GridRepositoryImpl(
-    private val applicationScope: CoroutineScope,
+    private val mainScope: CoroutineScope,
     private val manager: GridOptionsManager,
     private val backgroundDispatcher: CoroutineDispatcher,
     private val isGridApplyButtonEnabled: Boolean,
@@ -59,11 +66,23 @@ class GridRepositoryImpl(
     override fun getOptionChanges(): Flow<Unit> =
         manager.getOptionChangeObservable(/* handler= */ null).asFlow().map {}
 
-    private val selectedOption = MutableStateFlow<GridOption?>(null)
+    private val selection = OptionSelectionState<String?>(initialSelectedKey = null)
+
+    @Volatile
+    private var selectedOption: GridOption? = null
+        set(value) {
+            field = value
+            selection.select(value.key())
+        }
 
     private var appliedOption: GridOption? = null
 
-    override fun getSelectedOption() = selectedOption.value
+    private var isSelectionFromPersistedOptions = false
+
+    /** The pending request for the launcher to re-render the preview of the selected option. */
+    private var previewJob: Job? = null
+
+    override fun getSelectedOption() = selectedOption
 
     override suspend fun getOptions(): GridOptionItemsModel {
         return withContext(backgroundDispatcher) {
@@ -71,20 +90,7 @@ class GridRepositoryImpl(
                 manager.fetchOptions(
                     object : CustomizationManager.OptionsFetchedListener<GridOption> {
                         override fun onOptionsLoaded(options: MutableList<GridOption>?) {
-                            val optionsOrEmpty = options ?: emptyList()
-                            // After Apply Button is added, we will rely on onSelected() method
-                            // to update selectedOption.
-                            if (!isGridApplyButtonEnabled || selectedOption.value == null) {
-                                selectedOption.value = optionsOrEmpty.find { it.isActive(manager) }
-                            }
-                            if (isGridApplyButtonEnabled && appliedOption == null) {
-                                appliedOption = selectedOption.value
-                            }
-                            continuation.resume(
-                                GridOptionItemsModel.Loaded(
-                                    optionsOrEmpty.map { option -> toModel(option) }
-                                )
-                            )
+                            continuation.resume(toLoadedModel(options ?: emptyList()))
                         }
 
                         override fun onError(throwable: Throwable?) {
@@ -101,20 +107,41 @@ class GridRepositoryImpl(
         }
     }
 
+    override suspend fun getPersistedOptions(): GridOptionItemsModel.Loaded? {
+        return withContext(backgroundDispatcher) {
+            manager.persistedOptions
+                ?.takeIf { it.isNotEmpty() }
+                ?.let { toLoadedModel(it, isPersisted = true) }
+        }
+    }
+
+    private fun toLoadedModel(
+        options: List<GridOption>,
+        isPersisted: Boolean = false,
+    ): GridOptionItemsModel.Loaded {
+        // After Apply Button is added, we will rely on onSelected() method
+        // to update selectedOption. A selection taken from persisted options may be stale, so it
+        // is replaced by the one from the launcher once that is loaded.
+        if (
+            !isGridApplyButtonEnabled ||
+                selectedOption == null ||
+                isSelectionFromPersistedOptions
+        ) {
+            selectedOption = options.find { it.isActive(manager) }
+            isSelectionFromPersistedOptions = isPersisted
+        }
+        if (!isPersisted && isGridApplyButtonEnabled && appliedOption == null) {
+            appliedOption = selectedOption
+        }
+        return GridOptionItemsModel.Loaded(options.map { option -> toModel(option) })
+    }
+
     private fun toModel(option: GridOption): GridOptionItemModel {
         return GridOptionItemModel(
             name = option.title,
             rows = option.rows,
             cols = option.cols,
-            isSelected =
-                selectedOption
-                    .map { it.key() }
-                    .map { selectedOptionKey -> option.key() == selectedOptionKey }
-                    .stateIn(
-                        scope = applicationScope,
-                        started = SharingStarted.Eagerly,
-                        initialValue = false,
-                    ),
+            isSelected = selection.isSelected(option.key()),
             onSelected = { onSelected(option) },
         )
     }
@@ -123,10 +150,11 @@ class GridRepositoryImpl(
         withContext(backgroundDispatcher) {
             suspendCancellableCoroutine { continuation ->
                 if (isGridApplyButtonEnabled) {
-                    selectedOption.value?.setIsCurrent(false)
-                    selectedOption.value = option
-                    selectedOption.value?.setIsCurrent(true)
-                    manager.preview(option)
+                    selectedOption?.setIsCurrent(false)
+                    selectedOption = option
+                    selectedOption?.setIsCurrent(true)
+                    isSelectionFromPersistedOptions = false
+                    schedulePreview(option)
                     continuation.resume(true)
                 } else {
                     manager.apply(
@@ -146,7 +174,34 @@ class GridRepositoryImpl(
         }
     }
 
+    /**
+     * Asks the launcher to re-render the preview for the given option once the selection has
+     * settled, replacing any preview that hasn't been requested yet. Each preview is a full
+     * workspace reload in the launcher, so tapping through several options quickly only renders the
+     * last one.
+     */
+    @Synchronized
+    private fun schedulePreview(option: GridOption) {
+        previewJob?.cancel()
+        previewJob =
+            mainScope.launch {
+                delay(PREVIEW_DEBOUNCE_MILLIS)
+                // Request the preview at the start of a frame, rather than in the middle of the one
+                // drawing the new selection.
+                awaitFrame()
+                manager.preview(option)
+            }
+    }
+
+    @Synchronized
+    private fun cancelPreview() {
+        previewJob?.cancel()
+        previewJob = null
+    }
+
     override fun applySelectedOption(callback: Callback) {
+        // Applying reloads the launcher anyway, a pending preview would only render it once more.
+        cancelPreview()
         val option = getSelectedOption()
         manager.apply(
             option,
@@ -169,13 +224,18 @@ class GridRepositoryImpl(
         if (!isGridApplyButtonEnabled) {
             return
         }
-        selectedOption.value?.setIsCurrent(false)
-        selectedOption.value = null
+        cancelPreview()
+        selectedOption?.setIsCurrent(false)
+        selectedOption = null
     }
 
-    override fun isSelectedOptionApplied() = selectedOption.value?.name == appliedOption?.name
+    override fun isSelectedOptionApplied() = selectedOption?.name == appliedOption?.name
 
     private fun GridOption?.key(): String? {
         return if (this != null) "${cols}x${rows}" else null
     }
+
+    companion object {
+        private const val PREVIEW_DEBOUNCE_MILLIS = 100L
+    }
 }
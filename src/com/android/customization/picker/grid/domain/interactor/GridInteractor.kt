@@ -24,12 +24,18 @@ import com.android.customization.picker.grid.shared.model.GridOptionItemModel
 import com.android.customization.picker.grid.shared.model.GridOptionItemsModel
 import javax.inject.Provider
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.emptyFlow
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.merge
 import kotlinx.coroutines.flow.onStart
 import kotlinx.coroutines.flow.shareIn
 
@@ -38,43 +44,85 @@ class GridInteractor(
     private val repository: GridRepository,
     private val snapshotRestorer: Provider<GridSnapshotRestorer>,
 ) {
-    val options: Flow<GridOptionItemsModel> =
+    private val refreshRequests =
+        MutableSharedFlow<Unit>(
+            extraBufferCapacity = 1,
+            onBufferOverflow = BufferOverflow.DROP_OLDEST,
+        )
+
+    /**
+     * Refresh requests, at most one per [MIN_REFRESH_INTERVAL_MILLIS]. Requests made in between are
+     * coalesced into a single one that goes through once the interval is over.
+     */
+    private val throttledRefreshRequests: Flow<Unit> = flow {
+        refreshRequests.collect {
+            emit(Unit)
+            delay(MIN_REFRESH_INTERVAL_MILLIS)
+        }
+    }
+
+    val options: SharedFlow<GridOptionItemsModel> =
         flow { emit(repository.isAvailable()) }
             .flatMapLatest { isAvailable ->
                 if (isAvailable) {
-                    // this upstream flow tells us each time the options are changed.
-                    repository
-                        .getOptionChanges()
-                        // when we start, we pretend the options _just_ changed. This way, we load
-                        // something as soon as possible into the flow so it's ready by the time the
-                        // first observer starts to observe.
-                        .onStart { emit(Unit) }
+                    // this upstream flow tells us each time the options are changed, or that a
+                    // refresh was explicitly requested.
+                    merge(repository.getOptionChanges(), throttledRefreshRequests)
                         // each time the options changed, we load them.
                         .map { reload() }
-                        // we place the loaded options in a SharedFlow so downstream observers all
-                        // share the same flow and don't trigger a new one each time they want to
-                        // start observing.
-                        .shareIn(
-                            scope = applicationScope,
-                            started = SharingStarted.WhileSubscribed(),
-                            replay = 1,
-                        )
+                        // when we start, we emit the options persisted by the last successful load
+                        // right away so there is something to show, then revalidate them against
+                        // the launcher and only emit again if they turned out to be different.
+                        .onStart {
+                            val persisted = repository.getPersistedOptions()?.let { wrap(it) }
+                            persisted?.let { emit(it) }
+                            val loaded = reload()
+                            if (persisted == null || !loaded.hasSameOptionsAs(persisted)) {
+                                emit(loaded)
+                            }
+                        }
                 } else {
                     emptyFlow()
                 }
             }
+            // we place the loaded options in a SharedFlow so downstream observers, and reads of the
+            // selected option, all share the same flow and don't trigger a new load each time they
+            // want to start observing. Once nobody observes them, the options stop following the
+            // launcher's changes, so the last value is dropped rather than replayed later.
+            .shareIn(
+                scope = applicationScope,
+                started = SharingStarted.WhileSubscribed(replayExpirationMillis = 0),
+                replay = 1,
+            )
 
     suspend fun setSelectedOption(model: GridOptionItemModel) {
         model.onSelected.invoke()
     }
 
+    /**
+     * Returns the selected option out of [options]. While they are observed, this is their last
+     * value and doesn't query the launcher. Otherwise, this waits for their first value, which is
+     * the persisted options if there are any. Use [refreshOptions] if the options need to be read
+     * from the launcher again.
+     */
     suspend fun getSelectedOption(): GridOptionItemModel? {
-        return (repository.getOptions() as? GridOptionItemsModel.Loaded)?.options?.firstOrNull {
-            optionItem ->
+        val model = if (repository.isAvailable()) options.first() else null
+        return (model as? GridOptionItemsModel.Loaded)?.options?.firstOrNull { optionItem ->
             optionItem.isSelected.value
         }
     }
 
+    /**
+     * Asks for the options to be read from the launcher again, for the rare cases where they may
+     * have changed without the launcher notifying us. Refreshes are rate limited to one per
+     * [MIN_REFRESH_INTERVAL_MILLIS].
+     *
+     * This only affects [options] while they are being observed, a new observer loads them anyway.
+     */
+    fun refreshOptions() {
+        refreshRequests.tryEmit(Unit)
+    }
+
     fun getSelectOptionNonSuspend(): GridOption? = repository.getSelectedOption()
 
     fun clearSelectedOption() = repository.clearSelectedOption()
@@ -88,23 +136,41 @@ class GridInteractor(
     private suspend fun reload(): GridOptionItemsModel {
         val model = repository.getOptions()
         return if (model is GridOptionItemsModel.Loaded) {
-            GridOptionItemsModel.Loaded(
-                options =
-                    model.options.map { option ->
-                        GridOptionItemModel(
-                            name = option.name,
-                            cols = option.cols,
-                            rows = option.rows,
-                            isSelected = option.isSelected,
-                            onSelected = {
-                                option.onSelected()
-                                snapshotRestorer.get().store(option)
-                            },
-                        )
-                    }
-            )
+            wrap(model)
         } else {
             model
         }
     }
+
+    private fun wrap(model: GridOptionItemsModel.Loaded): GridOptionItemsModel.Loaded {
+        return GridOptionItemsModel.Loaded(
+            options =
+                model.options.map { option ->
+                    GridOptionItemModel(
+                        name = option.name,
+                        cols = option.cols,
+                        rows = option.rows,
+                        isSelected = option.isSelected,
+                        onSelected = {
+                            option.onSelected()
+                            snapshotRestorer.get().store(option)
+                        },
+                    )
+                }
+        )
+    }
+
+    private fun GridOptionItemsModel.hasSameOptionsAs(other: GridOptionItemsModel): Boolean {
+        if (this !is GridOptionItemsModel.Loaded || other !is GridOptionItemsModel.Loaded) {
+            return false
+        }
+        // Selection doesn't need comparing, the isSelected flows of both lists are backed by the
+        // same selected option in the repository.
+        return options.map { Triple(it.name, it.cols, it.rows) } ==
+            other.options.map { Triple(it.name, it.cols, it.rows) }
+    }
+
+    companion object {
+        private const val MIN_REFRESH_INTERVAL_MILLIS = 1000L
+    }
 }
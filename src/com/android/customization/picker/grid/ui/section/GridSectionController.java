@@ -44,9 +44,11 @@ public class GridSectionController implements CustomizationSectionController<Gri
     private final GridOptionsManager mGridOptionsManager;
     private final CustomizationSectionNavigationController mSectionNavigationController;
     private final Observer<Object> mOptionChangeObserver;
+    private final Observer<Boolean> mAvailabilityObserver;
     private final LifecycleOwner mLifecycleOwner;
     private TextView mSectionDescription;
     private View mSectionTile;
+    private View mSectionView;
 
     public GridSectionController(
             GridOptionsManager gridOptionsManager,
@@ -57,11 +59,14 @@ public class GridSectionController implements CustomizationSectionController<Gri
         mSectionNavigationController = sectionNavigationController;
         mLifecycleOwner = lifecycleOwner;
         mOptionChangeObserver = o -> updateUi(/* reload= */ true);
+        mAvailabilityObserver = this::updateVisibility;
     }
 
     @Override
     public boolean isAvailable(Context context) {
-        return mGridOptionsManager.isAvailable();
+        // Don't wait on the launcher here, the section hides itself once it is known that grids
+        // aren't available.
+        return !Boolean.FALSE.equals(mGridOptionsManager.getAvailability().getValue());
     }
 
     @Override
@@ -70,9 +75,11 @@ public class GridSectionController implements CustomizationSectionController<Gri
                 .inflate(R.layout.grid_section_view, /* root= */ null);
         mSectionDescription = gridSectionView.findViewById(R.id.grid_section_description);
         mSectionTile = gridSectionView.findViewById(R.id.grid_section_tile);
+        mSectionView = gridSectionView;
 
         // Fetch grid options to show currently set grid.
-        updateUi(/* The result is getting when calling isAvailable(), so reload= */ false);
+        updateUi(/* reload= */ false);
+        mGridOptionsManager.getAvailability().observe(mLifecycleOwner, mAvailabilityObserver);
         mGridOptionsManager.getOptionChangeObservable(/* handler= */ null).observe(
                 mLifecycleOwner,
                 mOptionChangeObserver);
@@ -88,11 +95,10 @@ public class GridSectionController implements CustomizationSectionController<Gri
 
     @Override
     public void release() {
-        if (mGridOptionsManager.isAvailable()) {
-            mGridOptionsManager.getOptionChangeObservable(/* handler= */ null).removeObserver(
-                    mOptionChangeObserver
-            );
-        }
+        mGridOptionsManager.getAvailability().removeObserver(mAvailabilityObserver);
+        mGridOptionsManager.getOptionChangeObservable(/* handler= */ null).removeObserver(
+                mOptionChangeObserver
+        );
     }
 
     @Override
@@ -100,6 +106,12 @@ public class GridSectionController implements CustomizationSectionController<Gri
         CustomizationSectionController.super.onTransitionOut();
     }
 
+    private void updateVisibility(@Nullable Boolean isAvailable) {
+        if (mSectionView != null && isAvailable != null) {
+            mSectionView.setVisibility(isAvailable ? View.VISIBLE : View.GONE);
+        }
+    }
+
     private void updateUi(final boolean reload) {
         mGridOptionsManager.fetchOptions(
                 new OptionsFetchedListener<GridOption>() {
@@ -32,6 +32,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.android.customization.model.CustomizationManager.Callback;
 import com.android.customization.model.CustomizationManager.OptionsFetchedListener;
 import com.android.customization.model.CustomizationOption;
+import com.android.customization.model.OverlayApplyTask;
 import com.android.customization.model.iconpack.IconPackOption;
 import com.android.customization.model.iconpack.IconPackManager;
 import com.android.customization.model.theme.OverlayManagerCompat;
@@ -69,6 +70,7 @@ public class IconPackFragment extends AppbarFragment {
     private ViewGroup mContent;
     private View mError;
     private BottomActionBar mBottomActionBar;
+    @Nullable private OverlayApplyTask mPendingApply;
 
     private final Callback mApplyIconPackCallback = new Callback() {
         @Override
@@ -112,6 +114,12 @@ public class IconPackFragment extends AppbarFragment {
         return view;
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        cancelPendingApply();
+    }
+
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -130,7 +138,15 @@ public class IconPackFragment extends AppbarFragment {
 
     private void applyIconPackOption(IconPackOption iconPackOption) {
         mBottomActionBar.disableActions();
-        mIconPackManager.apply(iconPackOption, mApplyIconPackCallback);
+        cancelPendingApply();
+        mPendingApply = mIconPackManager.applyAsync(iconPackOption, mApplyIconPackCallback);
+    }
+
+    private void cancelPendingApply() {
+        if (mPendingApply != null) {
+            mPendingApply.cancel();
+            mPendingApply = null;
+        }
     }
 
     private void setUpOptions(@Nullable Bundle savedInstanceState) {
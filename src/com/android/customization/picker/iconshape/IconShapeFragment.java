@@ -31,6 +31,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.android.customization.model.CustomizationManager.Callback;
 import com.android.customization.model.CustomizationManager.OptionsFetchedListener;
 import com.android.customization.model.CustomizationOption;
+import com.android.customization.model.OverlayApplyTask;
 import com.android.customization.model.iconshape.IconShapeOption;
 import com.android.customization.model.iconshape.IconShapeManager;
 import com.android.customization.model.theme.OverlayManagerCompat;
@@ -66,6 +67,7 @@ public class IconShapeFragment extends AppbarFragment {
     private ViewGroup mContent;
     private View mError;
     private BottomActionBar mBottomActionBar;
+    @Nullable private OverlayApplyTask mPendingApply;
 
     private final Callback mApplyIconShapeCallback = new Callback() {
         @Override
@@ -109,6 +111,12 @@ public class IconShapeFragment extends AppbarFragment {
         return view;
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        cancelPendingApply();
+    }
+
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -127,7 +135,15 @@ public class IconShapeFragment extends AppbarFragment {
 
     private void applyIconShapeOption(IconShapeOption iconPackOption) {
         mBottomActionBar.disableActions();
-        mIconShapeManager.apply(iconPackOption, mApplyIconShapeCallback);
+        cancelPendingApply();
+        mPendingApply = mIconShapeManager.applyAsync(iconPackOption, mApplyIconShapeCallback);
+    }
+
+    private void cancelPendingApply() {
+        if (mPendingApply != null) {
+            mPendingApply.cancel();
+            mPendingApply = null;
+        }
     }
 
     private void setUpOptions(@Nullable Bundle savedInstanceState) {
@@ -22,10 +22,19 @@ import com.android.customization.picker.quickaffordance.shared.model.KeyguardQui
 import com.android.customization.picker.quickaffordance.shared.model.KeyguardQuickAffordancePickerSlotModel as SlotModel
 import com.android.systemui.shared.customization.data.content.CustomizationProviderClient as Client
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.NonCancellable
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.distinctUntilChanged
 import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.mapNotNull
+import kotlinx.coroutines.flow.merge
 import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
 
 /**
  * Abstracts access to application state related to functionality for selecting, picking, or setting
@@ -46,13 +55,72 @@ class KeyguardQuickAffordancePickerRepository(
             .map { affordances -> affordances.map { affordance -> affordance.toModel() } }
             .shareIn(scope, replay = 1, started = SharingStarted.Lazily)
 
-    /** List of slot-affordance pairs, modeling what the user has currently chosen for each slot. */
+    private val batchMutex = Mutex()
+    private val isApplyingBatch = MutableStateFlow(false)
+    /** The final selections of the last batch, until the client reports them. */
+    private val awaitedBatchResult = MutableStateFlow<List<SelectionModel>?>(null)
+    private val batchResults = MutableSharedFlow<List<SelectionModel>>()
+
+    /**
+     * List of slot-affordance pairs, modeling what the user has currently chosen for each slot.
+     *
+     * Changes made by a [batchSelectionChanges] block are emitted once, when the block is done.
+     */
     val selections: Flow<List<SelectionModel>> =
-        client
-            .observeSelections()
-            .map { selections -> selections.map { selection -> selection.toModel() } }
+        merge(
+                client
+                    .observeSelections()
+                    .map { selections -> selections.map { selection -> selection.toModel() } }
+                    .mapNotNull { selections -> selections.takeIf { isReportable(it) } },
+                batchResults,
+            )
+            .distinctUntilChanged()
             .shareIn(scope, replay = 1, started = SharingStarted.Lazily)
 
+    /**
+     * Whether the given selections reported by the client can be emitted. Reports are delivered
+     * some time after the client queried them, so the intermediate states of a batch can still
+     * come in once the batch is done. Reports are hidden until the final state of the last batch
+     * is seen, or until the selections changed again since.
+     */
+    private suspend fun isReportable(selections: List<SelectionModel>): Boolean {
+        if (isApplyingBatch.value) {
+            return false
+        }
+        val awaited = awaitedBatchResult.value ?: return true
+        if (selections != awaited) {
+            val current = client.querySelections().map { selection -> selection.toModel() }
+            if (current == awaited) {
+                // A stale report of an intermediate state of the batch.
+                return false
+            }
+        }
+        awaitedBatchResult.compareAndSet(awaited, null)
+        return true
+    }
+
+    /**
+     * Runs the given block, which changes selections through the client, holding back the selection
+     * changes it causes until it's done. Blocks are run one at a time.
+     */
+    suspend fun <T> batchSelectionChanges(block: suspend () -> T): T {
+        return batchMutex.withLock {
+            isApplyingBatch.value = true
+            try {
+                block()
+            } finally {
+                withContext(NonCancellable) {
+                    // Emit the final state right away, reports of the intermediate states of the
+                    // batch that are still on their way are dropped.
+                    val result = client.querySelections().map { selection -> selection.toModel() }
+                    awaitedBatchResult.value = result
+                    isApplyingBatch.value = false
+                    batchResults.emit(result)
+                }
+            }
+        }
+    }
+
     private fun Client.Slot.toModel(): SlotModel {
         return SlotModel(
             id = id,
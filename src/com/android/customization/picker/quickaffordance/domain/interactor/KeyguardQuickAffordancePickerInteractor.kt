@@ -17,6 +17,8 @@
 
 package com.android.customization.picker.quickaffordance.domain.interactor
 
+import android.content.res.Configuration
+import android.content.res.Resources
 import android.graphics.drawable.Drawable
 import androidx.annotation.DrawableRes
 import com.android.customization.picker.quickaffordance.data.repository.KeyguardQuickAffordancePickerRepository
@@ -24,6 +26,7 @@ import com.android.customization.picker.quickaffordance.shared.model.KeyguardQui
 import com.android.customization.picker.quickaffordance.shared.model.KeyguardQuickAffordancePickerSelectionModel as SelectionModel
 import com.android.customization.picker.quickaffordance.shared.model.KeyguardQuickAffordancePickerSlotModel as SlotModel
 import com.android.systemui.shared.customization.data.content.CustomizationProviderClient as Client
+import java.util.concurrent.ConcurrentHashMap
 import javax.inject.Provider
 import kotlinx.coroutines.flow.Flow
 
@@ -36,6 +39,8 @@ class KeyguardQuickAffordancePickerInteractor(
     private val client: Client,
     private val snapshotRestorer: Provider<KeyguardQuickAffordanceSnapshotRestorer>,
 ) {
+    private val iconConstantStates = ConcurrentHashMap<IconKey, Drawable.ConstantState>()
+
     /** List of slots available on the device. */
     val slots: Flow<List<SlotModel>> = repository.slots
 
@@ -74,13 +79,126 @@ class KeyguardQuickAffordancePickerInteractor(
 
     /** Unselects all affordances from all slots. */
     suspend fun unselectAll() {
-        client.querySlots().forEach { client.deleteAllSelections(it.id) }
+        applySelectionChanges { _, _ -> emptyMap() }
+    }
+
+    /**
+     * Replaces the selections of all slots with the given affordance IDs, keyed by slot ID. Slots
+     * missing from the map end up with no selected affordance.
+     *
+     * Only the slots whose selections differ are written, and observers of [selections] are only
+     * notified once.
+     */
+    suspend fun setSelections(affordanceIdsBySlotId: Map<String, List<String>>) {
+        applySelectionChanges { _, capacityBySlotId ->
+            affordanceIdsBySlotId.mapValues { (slotId, affordanceIds) ->
+                affordanceIds.fold(emptyList<String>()) { selected, affordanceId ->
+                    selected.inserted(affordanceId, capacityBySlotId[slotId] ?: 0)
+                }
+            }
+        }
+
+        snapshotRestorer.get().storeSnapshot()
     }
 
-    /** Returns a [Drawable] for the given resource ID, from the system UI package. */
+    /**
+     * Applies the selections returned by [transform] for the current selections and slot
+     * capacities, both keyed by slot ID, as a single batch.
+     *
+     * Each slot is written with as few client calls as possible: nothing if its selections don't
+     * change, the newly selected affordances only if inserting them into the current selections
+     * is enough, and otherwise a reset of the slot followed by all of its selected affordances.
+     */
+    private suspend fun applySelectionChanges(
+        transform: (Map<String, List<String>>, Map<String, Int>) -> Map<String, List<String>>,
+    ) {
+        repository.batchSelectionChanges {
+            val slots = client.querySlots()
+            val capacityBySlotId = slots.associate { slot -> slot.id to slot.capacity }
+            val currentBySlotId =
+                client
+                    .querySelections()
+                    .groupBy(
+                        keySelector = { selection -> selection.slotId },
+                        valueTransform = { selection -> selection.affordanceId },
+                    )
+            val targetBySlotId = transform(currentBySlotId, capacityBySlotId)
+
+            slots.forEach { slot ->
+                val current = currentBySlotId[slot.id].orEmpty()
+                val target = targetBySlotId[slot.id].orEmpty()
+                if (current == target) {
+                    return@forEach
+                }
+
+                val insertions =
+                    (target.size - 1 downTo 0)
+                        .map { start -> target.subList(start, target.size) }
+                        .firstOrNull { insertions ->
+                            insertions.fold(current) { selected, affordanceId ->
+                                selected.inserted(affordanceId, slot.capacity)
+                            } == target
+                        }
+                if (insertions == null) {
+                    client.deleteAllSelections(slotId = slot.id)
+                }
+                (insertions ?: target).forEach { affordanceId ->
+                    client.insertSelection(slotId = slot.id, affordanceId = affordanceId)
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns these selected affordance IDs, oldest first, after selecting the given affordance on a
+     * slot with the given capacity.
+     */
+    private fun List<String>.inserted(affordanceId: String, capacity: Int): List<String> {
+        return (this - affordanceId + affordanceId).takeLast(capacity)
+    }
+
+    /**
+     * Returns a [Drawable] for the given resource ID, from the system UI package.
+     *
+     * Icons are loaded once per resource ID and configuration, each call returns a new [Drawable]
+     * sharing the constant state of the loaded one. Callers that change the drawable's state, like
+     * its tint, need to [Drawable.mutate] it first.
+     */
     suspend fun getAffordanceIcon(
         @DrawableRes iconResourceId: Int,
     ): Drawable {
-        return client.getAffordanceIcon(iconResourceId)
+        val key = IconKey(iconResourceId, Resources.getSystem().configuration)
+        iconConstantStates[key]?.let {
+            return it.newDrawable()
+        }
+
+        val icon = client.getAffordanceIcon(iconResourceId)
+        val constantState = icon.constantState ?: return icon
+        // Icons loaded for a previous configuration aren't needed anymore.
+        iconConstantStates.keys.removeIf { it.configuration != key.configuration }
+        iconConstantStates[key] = constantState
+        return constantState.newDrawable()
+    }
+
+    private data class IconKey(
+        @DrawableRes val iconResourceId: Int,
+        val configuration: IconConfiguration,
+    ) {
+        constructor(
+            @DrawableRes iconResourceId: Int,
+            configuration: Configuration,
+        ) : this(
+            iconResourceId,
+            IconConfiguration(
+                uiMode = configuration.uiMode,
+                densityDpi = configuration.densityDpi,
+            ),
+        )
     }
+
+    /** The parts of the configuration that affect how an icon resource resolves. */
+    private data class IconConfiguration(
+        val uiMode: Int,
+        val densityDpi: Int,
+    )
 }
@@ -42,24 +42,24 @@ class KeyguardQuickAffordanceSnapshotRestorer(
     }
 
     override suspend fun restoreToSnapshot(snapshot: RestorableSnapshot) {
-        // reset all current selections
-        interactor.unselectAll()
-
         val allSelections = checkNotNull(snapshot.args[KEY_SELECTIONS])
-        if (allSelections.isEmpty()) return
-
         val selections: List<Pair<String, String>> =
-            allSelections.split(SELECTION_SEPARATOR).map { selection ->
-                val (slotId, affordanceId) = selection.split(SLOT_AFFORDANCE_SEPARATOR)
-                slotId to affordanceId
+            if (allSelections.isEmpty()) {
+                emptyList()
+            } else {
+                allSelections.split(SELECTION_SEPARATOR).map { selection ->
+                    val (slotId, affordanceId) = selection.split(SLOT_AFFORDANCE_SEPARATOR)
+                    slotId to affordanceId
+                }
             }
 
-        selections.forEach { (slotId, affordanceId) ->
-            interactor.select(
-                slotId,
-                affordanceId,
+        // Replaces all current selections, only writing the slots that differ.
+        interactor.setSelections(
+            selections.groupBy(
+                keySelector = { (slotId, _) -> slotId },
+                valueTransform = { (_, affordanceId) -> affordanceId },
             )
-        }
+        )
     }
 
     private suspend fun snapshot(): RestorableSnapshot {
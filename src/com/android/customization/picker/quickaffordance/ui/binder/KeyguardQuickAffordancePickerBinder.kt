@@ -124,6 +124,9 @@ object KeyguardQuickAffordancePickerBinder {
                                 selectedFlags.indexOfFirst { it }
                             }
                         }
+                        // The list is emitted again as its icons load, only scroll when the
+                        // selection moves.
+                        .distinctUntilChanged()
                         .collectIndexed { index, selectedPosition ->
                             // Scroll the view to show the first selected affordance.
                             if (selectedPosition != -1) {
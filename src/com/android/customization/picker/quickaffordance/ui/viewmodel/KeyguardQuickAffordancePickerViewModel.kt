@@ -20,6 +20,8 @@ package com.android.customization.picker.quickaffordance.ui.viewmodel
 import android.annotation.SuppressLint
 import android.content.Context
 import android.content.Intent
+import android.graphics.Color
+import android.graphics.drawable.ColorDrawable
 import android.graphics.drawable.Drawable
 import android.os.Bundle
 import androidx.annotation.DrawableRes
@@ -28,6 +30,8 @@ import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.viewModelScope
 import com.android.customization.module.logging.ThemesUserEventLogger
 import com.android.customization.picker.quickaffordance.domain.interactor.KeyguardQuickAffordancePickerInteractor
+import com.android.customization.picker.quickaffordance.shared.model.KeyguardQuickAffordancePickerAffordanceModel as AffordanceModel
+import com.android.customization.picker.quickaffordance.shared.model.KeyguardQuickAffordancePickerSlotModel as SlotModel
 import com.android.systemui.shared.keyguard.shared.model.KeyguardQuickAffordanceSlots
 import com.android.systemui.shared.quickaffordance.shared.model.KeyguardPreviewConstants
 import com.android.themepicker.R
@@ -42,15 +46,23 @@ import com.android.wallpaper.picker.customization.domain.interactor.WallpaperInt
 import com.android.wallpaper.picker.customization.ui.viewmodel.ScreenPreviewViewModel
 import com.android.wallpaper.picker.option.ui.viewmodel.OptionItemViewModel
 import com.android.wallpaper.util.PreviewUtils
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.channelFlow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.drop
+import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flowOf
 import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.runningFold
+import kotlinx.coroutines.flow.scan
 import kotlinx.coroutines.flow.shareIn
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
@@ -65,6 +77,7 @@ private constructor(
     private val wallpaperInteractor: WallpaperInteractor,
     private val wallpaperInfoFactory: CurrentWallpaperInfoFactory,
     private val logger: ThemesUserEventLogger,
+    private val backgroundDispatcher: CoroutineDispatcher,
 ) : ViewModel() {
 
     @SuppressLint("StaticFieldLeak") private val applicationContext = context.applicationContext
@@ -127,59 +140,107 @@ private constructor(
                 initialValue = "",
             )
 
-    /** View-models for each slot, keyed by slot ID. */
+    /** The IDs of the selected affordances, keyed by slot ID. */
+    private val selectedAffordanceIdsBySlotId: Flow<Map<String, Set<String>>> =
+        quickAffordanceInteractor.selections
+            .map { selections ->
+                selections
+                    .groupBy(
+                        keySelector = { selection -> selection.slotId },
+                        valueTransform = { selection -> selection.affordanceId },
+                    )
+                    .mapValues { (_, affordanceIds) -> affordanceIds.toSet() }
+            }
+            .distinctUntilChanged()
+
+    /** All available affordances, with their position in the list, keyed by affordance ID. */
+    private val affordancesById: Flow<Map<String, IndexedValue<AffordanceModel>>> =
+        quickAffordanceInteractor.affordances
+            .map { affordances ->
+                affordances.withIndex().associateBy { (_, affordance) -> affordance.id }
+            }
+            .distinctUntilChanged()
+
+    /**
+     * View-models for each slot, keyed by slot ID.
+     *
+     * Only the slots whose model, selected affordances or selection state changed get a new
+     * view-model, the others keep the same view-model instance.
+     */
     val slots: Flow<Map<String, KeyguardQuickAffordanceSlotViewModel>> =
         combine(
-            quickAffordanceInteractor.slots,
-            quickAffordanceInteractor.affordances,
-            quickAffordanceInteractor.selections,
-            selectedSlotId,
-        ) { slots, affordances, selections, selectedSlotId ->
-            slots.associate { slot ->
-                val selectedAffordanceIds =
-                    selections
-                        .filter { selection -> selection.slotId == slot.id }
-                        .map { selection -> selection.affordanceId }
-                        .toSet()
-                val selectedAffordances =
-                    affordances.filter { affordance ->
-                        selectedAffordanceIds.contains(affordance.id)
-                    }
-                val isSelected = selectedSlotId == slot.id
-                slot.id to
-                    KeyguardQuickAffordanceSlotViewModel(
-                        name = getSlotName(slot.id),
-                        isSelected = isSelected,
-                        selectedQuickAffordances =
-                            selectedAffordances.map { affordanceModel ->
-                                OptionItemViewModel<Icon>(
-                                    key =
-                                        MutableStateFlow("${slot.id}::${affordanceModel.id}")
-                                            as StateFlow<String>,
-                                    payload =
-                                        Icon.Loaded(
-                                            drawable =
-                                                getAffordanceIcon(affordanceModel.iconResourceId),
-                                            contentDescription =
-                                                Text.Loaded(getSlotContentDescription(slot.id)),
-                                        ),
-                                    text = Text.Loaded(affordanceModel.name),
-                                    isSelected = MutableStateFlow(true) as StateFlow<Boolean>,
-                                    onClicked = flowOf(null),
-                                    onLongClicked = null,
-                                    isEnabled = true,
-                                )
-                            },
-                        maxSelectedQuickAffordances = slot.maxSelectedQuickAffordances,
-                        onClicked =
-                            if (isSelected) {
-                                null
-                            } else {
-                                { _selectedSlotId.tryEmit(slot.id) }
-                            },
+                quickAffordanceInteractor.slots,
+                affordancesById,
+                selectedAffordanceIdsBySlotId,
+                selectedSlotId,
+            ) { slots, affordancesById, selectedAffordanceIdsBySlotId, selectedSlotId ->
+                slots.map { slot ->
+                    SlotState(
+                        slot = slot,
+                        selectedAffordances =
+                            selectedAffordanceIdsBySlotId[slot.id]
+                                .orEmpty()
+                                .mapNotNull { affordanceId -> affordancesById[affordanceId] }
+                                // Keep the order of the list of all affordances.
+                                .sortedBy { (index, _) -> index }
+                                .map { (_, affordance) ->
+                                    SelectedAffordance(
+                                        id = affordance.id,
+                                        name = affordance.name,
+                                        iconResourceId = affordance.iconResourceId,
+                                        isEnabled = affordance.isEnabled,
+                                    )
+                                },
+                        isSelected = selectedSlotId == slot.id,
                     )
+                }
             }
-        }
+            .scan(emptyMap<String, DerivedSlot>()) { previousSlots, slotStates ->
+                slotStates.associate { state ->
+                    state.slot.id to
+                        (previousSlots[state.slot.id]?.takeIf { it.state == state }
+                            ?: DerivedSlot(state, createSlotViewModel(state)))
+                }
+            }
+            .drop(1)
+            .map { derivedSlots -> derivedSlots.mapValues { (_, derived) -> derived.viewModel } }
+            .distinctUntilChanged()
+
+    private suspend fun createSlotViewModel(
+        state: SlotState,
+    ): KeyguardQuickAffordanceSlotViewModel {
+        val slot = state.slot
+        return KeyguardQuickAffordanceSlotViewModel(
+            name = getSlotName(slot.id),
+            isSelected = state.isSelected,
+            selectedQuickAffordances =
+                state.selectedAffordances.map { affordanceModel ->
+                    OptionItemViewModel<Icon>(
+                        key =
+                            MutableStateFlow("${slot.id}::${affordanceModel.id}")
+                                as StateFlow<String>,
+                        payload =
+                            Icon.Loaded(
+                                drawable = getAffordanceIcon(affordanceModel.iconResourceId),
+                                contentDescription =
+                                    Text.Loaded(getSlotContentDescription(slot.id)),
+                            ),
+                        text = Text.Loaded(affordanceModel.name),
+                        isSelected = MutableStateFlow(true) as StateFlow<Boolean>,
+                        onClicked = flowOf(null),
+                        onLongClicked = null,
+                        isEnabled = true,
+                    )
+                },
+            maxSelectedQuickAffordances = slot.maxSelectedQuickAffordances,
+            onClicked =
+                if (state.isSelected) {
+                    null
+                } else {
+                    { _selectedSlotId.tryEmit(slot.id) }
+                },
+        )
+    }
 
     /**
      * The set of IDs of the currently-selected affordances. These change with user selection of new
@@ -187,13 +248,10 @@ private constructor(
      */
     private val selectedAffordanceIds: Flow<Set<String>> =
         combine(
-                quickAffordanceInteractor.selections,
+                selectedAffordanceIdsBySlotId,
                 selectedSlotId,
-            ) { selections, selectedSlotId ->
-                selections
-                    .filter { selection -> selection.slotId == selectedSlotId }
-                    .map { selection -> selection.affordanceId }
-                    .toSet()
+            ) { selectedAffordanceIdsBySlotId, selectedSlotId ->
+                selectedAffordanceIdsBySlotId[selectedSlotId].orEmpty()
             }
             .shareIn(
                 scope = viewModelScope,
@@ -201,13 +259,57 @@ private constructor(
                 replay = 1,
             )
 
-    /** The list of all available quick affordances for the selected slot. */
+    /**
+     * The list of all available quick affordances for the selected slot.
+     *
+     * The list is emitted right away with placeholder icons. The icons are loaded in parallel in the
+     * background and the list is emitted again as they come in.
+     */
     val quickAffordances: Flow<List<OptionItemViewModel<Icon>>> =
-        quickAffordanceInteractor.affordances.map { affordances ->
-            val isNoneSelected = selectedAffordanceIds.map { it.isEmpty() }.stateIn(viewModelScope)
-            listOf(
+        quickAffordanceInteractor.affordances.flatMapLatest { affordances ->
+            channelFlow {
+                // The state flows of the options are cancelled with the next list of affordances.
+                val options = createQuickAffordanceOptions(affordances, scope = this)
+                loadAffordanceIcons(affordances.map { affordance -> affordance.iconResourceId })
+                    .collect { iconByResourceId ->
+                        send(
+                            options.map { (affordance, option) ->
+                                val icon = affordance?.let { iconByResourceId[it.iconResourceId] }
+                                if (affordance == null || icon == null) {
+                                    option
+                                } else {
+                                    option.copy(
+                                        payload =
+                                            Icon.Loaded(drawable = icon, contentDescription = null),
+                                        onClicked =
+                                            if (affordance.isEnabled) {
+                                                option.onClicked
+                                            } else {
+                                                flowOf { showEnablementDialog(affordance, icon) }
+                                            },
+                                    )
+                                }
+                            }
+                        )
+                    }
+            }
+        }
+
+    /**
+     * Returns the options for the given affordances, preceded by the "None" option, each paired
+     * with its affordance. Affordance options have a placeholder icon. Their state flows are
+     * started in the given scope.
+     */
+    private suspend fun createQuickAffordanceOptions(
+        affordances: List<AffordanceModel>,
+        scope: CoroutineScope,
+    ): List<Pair<AffordanceModel?, OptionItemViewModel<Icon>>> {
+        val isNoneSelected = selectedAffordanceIds.map { it.isEmpty() }.stateIn(scope)
+        return listOf(
+            null to
                 none(
                     slotId = selectedSlotId,
+                    scope = scope,
                     isSelected = isNoneSelected,
                     onSelected =
                         combine(
@@ -231,19 +333,22 @@ private constructor(
                             }
                         }
                 )
-            ) +
-                affordances.map { affordance ->
-                    val affordanceIcon = getAffordanceIcon(affordance.iconResourceId)
-                    val isSelectedFlow: StateFlow<Boolean> =
-                        selectedAffordanceIds
-                            .map { it.contains(affordance.id) }
-                            .stateIn(viewModelScope)
+        ) +
+            affordances.map { affordance ->
+                val isSelectedFlow: StateFlow<Boolean> =
+                    selectedAffordanceIds.map { it.contains(affordance.id) }.stateIn(scope)
+                val placeholderIcon = ColorDrawable(Color.TRANSPARENT)
+                affordance to
                     OptionItemViewModel<Icon>(
                         key =
                             selectedSlotId
                                 .map { slotId -> "$slotId::${affordance.id}" }
-                                .stateIn(viewModelScope),
-                        payload = Icon.Loaded(drawable = affordanceIcon, contentDescription = null),
+                                .stateIn(scope),
+                        payload =
+                            Icon.Loaded(
+                                drawable = placeholderIcon,
+                                contentDescription = null,
+                            ),
                         text = Text.Loaded(affordance.name),
                         isSelected = isSelectedFlow,
                         onClicked =
@@ -270,15 +375,7 @@ private constructor(
                                     }
                                 }
                             } else {
-                                flowOf {
-                                    showEnablementDialog(
-                                        icon = affordanceIcon,
-                                        name = affordance.name,
-                                        explanation = affordance.enablementExplanation,
-                                        actionText = affordance.enablementActionText,
-                                        actionIntent = affordance.enablementActionIntent,
-                                    )
-                                }
+                                flowOf { showEnablementDialog(affordance, placeholderIcon) }
                             },
                         onLongClicked =
                             if (affordance.configureIntent != null) {
@@ -288,8 +385,27 @@ private constructor(
                             },
                         isEnabled = affordance.isEnabled,
                     )
+            }
+    }
+
+    /**
+     * Loads the icons with the given resource IDs in parallel in the background. Emits the icons
+     * loaded so far, starting with none of them.
+     */
+    private fun loadAffordanceIcons(
+        iconResourceIds: List<Int>,
+    ): Flow<Map<Int, Drawable>> {
+        return channelFlow {
+                iconResourceIds.distinct().forEach { iconResourceId ->
+                    launch(backgroundDispatcher) {
+                        send(iconResourceId to getAffordanceIcon(iconResourceId))
+                    }
                 }
-        }
+            }
+            .runningFold(emptyMap()) { iconByResourceId, (iconResourceId, icon) ->
+                iconByResourceId + (iconResourceId to icon)
+            }
+    }
 
     @SuppressLint("UseCompatLoadingForDrawables")
     val summary: Flow<KeyguardQuickAffordanceSummaryViewModel> =
@@ -357,12 +473,12 @@ private constructor(
     }
 
     private fun showEnablementDialog(
+        affordance: AffordanceModel,
         icon: Drawable,
-        name: String,
-        explanation: String,
-        actionText: String?,
-        actionIntent: Intent?,
     ) {
+        val explanation = affordance.enablementExplanation
+        val actionText = affordance.enablementActionText
+        val actionIntent = affordance.enablementActionIntent
         _dialog.value =
             DialogViewModel(
                 icon =
@@ -410,11 +526,12 @@ private constructor(
     @SuppressLint("UseCompatLoadingForDrawables")
     private suspend fun none(
         slotId: StateFlow<String>,
+        scope: CoroutineScope,
         isSelected: StateFlow<Boolean>,
         onSelected: Flow<(() -> Unit)?>,
     ): OptionItemViewModel<Icon> {
         return OptionItemViewModel<Icon>(
-            key = slotId.map { "$it::none" }.stateIn(viewModelScope),
+            key = slotId.map { "$it::none" }.stateIn(scope),
             payload = Icon.Resource(res = R.drawable.link_off, contentDescription = null),
             text = Text.Resource(res = R.string.keyguard_affordance_none),
             isSelected = isSelected,
@@ -483,12 +600,36 @@ private constructor(
         }
     }
 
+    /** Everything a slot view-model is derived from. */
+    private data class SlotState(
+        val slot: SlotModel,
+        val selectedAffordances: List<SelectedAffordance>,
+        val isSelected: Boolean,
+    )
+
+    /**
+     * What a slot view-model shows of one of its selected affordances. Unlike [AffordanceModel],
+     * whose intents are only equal to themselves, it is compared by value.
+     */
+    private data class SelectedAffordance(
+        val id: String,
+        val name: String,
+        @DrawableRes val iconResourceId: Int,
+        val isEnabled: Boolean,
+    )
+
+    private class DerivedSlot(
+        val state: SlotState,
+        val viewModel: KeyguardQuickAffordanceSlotViewModel,
+    )
+
     class Factory(
         private val context: Context,
         private val quickAffordanceInteractor: KeyguardQuickAffordancePickerInteractor,
         private val wallpaperInteractor: WallpaperInteractor,
         private val wallpaperInfoFactory: CurrentWallpaperInfoFactory,
         private val logger: ThemesUserEventLogger,
+        private val backgroundDispatcher: CoroutineDispatcher,
     ) : ViewModelProvider.Factory {
         override fun <T : ViewModel> create(modelClass: Class<T>): T {
             @Suppress("UNCHECKED_CAST")
@@ -498,6 +639,7 @@ private constructor(
                 wallpaperInteractor = wallpaperInteractor,
                 wallpaperInfoFactory = wallpaperInfoFactory,
                 logger = logger,
+                backgroundDispatcher = backgroundDispatcher,
             )
                 as T
         }
@@ -25,6 +25,8 @@ public class GridTileDrawable extends Drawable {
     private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Path mShapePath;
     private final Path mTransformedPath;
+    // All the cells of the grid combined in one path, so that draw is a single call.
+    private final Path mTiledPath = new Path();
     private final Matrix mScaleMatrix;
     private float mCellSize = -1f;
 
@@ -46,24 +48,23 @@ public class GridTileDrawable extends Drawable {
         float scaleFactor = (mCellSize - 2 * SPACE_BETWEEN_ICONS) / PATH_SIZE;
         mScaleMatrix.setScale(scaleFactor, scaleFactor);
         mShapePath.transform(mScaleMatrix, mTransformedPath);
-    }
-
-    @Override
-    public void draw(Canvas canvas) {
-        double size = getBounds().width();
 
+        double size = bounds.width();
+        mTiledPath.reset();
         for (int r = 0; r < mRows; r++) {
             for (int c = 0; c < mCols; c++) {
-                int saveCount = canvas.save();
                 float y = (float) ((r * size / mRows) + SPACE_BETWEEN_ICONS);
                 float x = (float) ((c * size / mCols) + SPACE_BETWEEN_ICONS);
-                canvas.translate(x, y);
-                canvas.drawPath(mTransformedPath, mPaint);
-                canvas.restoreToCount(saveCount);
+                mTiledPath.addPath(mTransformedPath, x, y);
             }
         }
     }
 
+    @Override
+    public void draw(Canvas canvas) {
+        canvas.drawPath(mTiledPath, mPaint);
+    }
+
     @Override
     public void setAlpha(int alpha) {
         mPaint.setAlpha(alpha);
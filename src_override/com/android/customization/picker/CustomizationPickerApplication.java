@@ -17,6 +17,7 @@ package com.android.customization.picker;
 
 import android.app.Application;
 
+import com.android.customization.model.grid.GridOptionsManager;
 import com.android.customization.module.CustomizationInjector;
 import com.android.wallpaper.module.InjectorProvider;
 
@@ -39,5 +40,9 @@ public class CustomizationPickerApplication extends Hilt_CustomizationPickerAppl
 
         // Initialize the injector.
         InjectorProvider.setInjector(mInjector);
+
+        // Start checking whether the launcher supports grids, so that the grid section usually
+        // knows whether to show itself by the time it's built.
+        GridOptionsManager.getInstance(this).primeAvailability();
     }
 }
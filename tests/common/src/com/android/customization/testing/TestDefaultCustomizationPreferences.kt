@@ -28,6 +28,8 @@ open class TestDefaultCustomizationPreferences @Inject constructor() :
     private var customThemes: String? = null
     private val tabVisited: MutableSet<String> = HashSet()
     private var themedIconEnabled = false
+    private var gridOptionsSnapshot: String? = null
+    private var clockMetadataSnapshot: String? = null
 
     override fun getSerializedCustomThemes(): String? {
         return customThemes
@@ -52,4 +54,20 @@ open class TestDefaultCustomizationPreferences @Inject constructor() :
     override fun setThemedIconEnabled(enabled: Boolean) {
         themedIconEnabled = enabled
     }
+
+    override fun getGridOptionsSnapshot(): String? {
+        return gridOptionsSnapshot
+    }
+
+    override fun storeGridOptionsSnapshot(serializedGridOptions: String) {
+        gridOptionsSnapshot = serializedGridOptions
+    }
+
+    override fun getClockMetadataSnapshot(): String? {
+        return clockMetadataSnapshot
+    }
+
+    override fun storeClockMetadataSnapshot(serializedClockMetadata: String) {
+        clockMetadataSnapshot = serializedClockMetadata
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model.font
+
+import android.content.Context
+import android.graphics.Typeface
+import android.text.PrecomputedText
+import android.widget.TextView
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/** Tests of {@link FontPreviewTextCache}. */
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class FontPreviewTextCacheTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val backgroundTasks = ArrayDeque<Runnable>()
+    private val underTest = FontPreviewTextCache { backgroundTasks.addLast(it) }
+
+    @Test
+    fun bind_notShapedYet_setsPlainTextAndShapesInBackground() {
+        val textView = createTextView(Typeface.DEFAULT)
+
+        underTest.bind(textView, /* isHeadline= */ true)
+
+        assertThat(textView.text).isNotInstanceOf(PrecomputedText::class.java)
+        assertThat(backgroundTasks).hasSize(1)
+
+        runBackgroundTasks()
+        underTest.bind(textView, /* isHeadline= */ true)
+
+        assertThat(textView.text).isInstanceOf(PrecomputedText::class.java)
+    }
+
+    @Test
+    fun bind_firstBind_shapesTextForTheOtherTypefaces() {
+        underTest.setTypefaces(listOf(Typeface.SERIF), listOf(Typeface.MONOSPACE))
+        underTest.bind(createTextView(Typeface.DEFAULT), /* isHeadline= */ true)
+        runBackgroundTasks()
+
+        val headlineTextView = createTextView(Typeface.SERIF)
+        underTest.bind(headlineTextView, /* isHeadline= */ true)
+
+        assertThat(headlineTextView.text).isInstanceOf(PrecomputedText::class.java)
+        assertThat(backgroundTasks).isEmpty()
+    }
+
+    @Test
+    fun bind_sameTextTwiceWhileShaping_shapesOnce() {
+        underTest.bind(createTextView(Typeface.DEFAULT), /* isHeadline= */ false)
+        underTest.bind(createTextView(Typeface.DEFAULT), /* isHeadline= */ false)
+
+        assertThat(backgroundTasks).hasSize(1)
+    }
+
+    private fun createTextView(typeface: Typeface): TextView {
+        return TextView(context).apply {
+            text = SAMPLE_TEXT
+            setTypeface(typeface)
+        }
+    }
+
+    private fun runBackgroundTasks() {
+        while (backgroundTasks.isNotEmpty()) {
+            backgroundTasks.removeFirst().run()
+        }
+    }
+
+    companion object {
+        private const val SAMPLE_TEXT = "Aa"
+    }
+}
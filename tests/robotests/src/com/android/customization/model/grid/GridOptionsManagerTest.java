@@ -15,11 +15,17 @@
  */
 package com.android.customization.model.grid;
 
+import static com.google.common.truth.Truth.assertThat;
+
 import static junit.framework.TestCase.fail;
 
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
 
 import androidx.annotation.Nullable;
 
@@ -34,6 +40,8 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Arrays;
+
 @RunWith(RobolectricTestRunner.class)
 public class GridOptionsManagerTest {
 
@@ -72,4 +80,49 @@ public class GridOptionsManagerTest {
         mManager.fetchOptions(null, false);
         verify(mProvider).fetch(anyBoolean());
     }
+
+    @Test
+    public void testIsAvailable_cachesResult() {
+        when(mProvider.areGridsAvailable()).thenReturn(true);
+        when(mProvider.fetch(true)).thenReturn(Arrays.asList(
+                new GridOption("2x2", "name1", true, 2, 2, null, 1, ""),
+                new GridOption("3x3", "name2", false, 3, 3, null, 1, "")));
+
+        assertThat(mManager.isAvailable()).isTrue();
+        assertThat(mManager.isAvailable()).isTrue();
+        verify(mProvider, times(1)).fetch(true);
+    }
+
+    @Test
+    public void testGetAvailability_postsResultWithoutWaiting() {
+        when(mProvider.areGridsAvailable()).thenReturn(true);
+        when(mProvider.fetch(true)).thenReturn(Arrays.asList(
+                new GridOption("2x2", "name1", true, 2, 2, null, 1, ""),
+                new GridOption("3x3", "name2", false, 3, 3, null, 1, "")));
+
+        assertThat(mManager.getAvailability().getValue()).isNull();
+
+        // Waits on the query started by getAvailability() rather than starting another one.
+        assertThat(mManager.isAvailable()).isTrue();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertThat(mManager.getAvailability().getValue()).isTrue();
+        verify(mProvider, times(1)).fetch(true);
+    }
+
+    @Test
+    public void testPrimeAvailability_sharesQueryWithLaterCallers() {
+        when(mProvider.areGridsAvailable()).thenReturn(true);
+        when(mProvider.fetch(true)).thenReturn(Arrays.asList(
+                new GridOption("2x2", "name1", true, 2, 2, null, 1, ""),
+                new GridOption("3x3", "name2", false, 3, 3, null, 1, "")));
+
+        mManager.primeAvailability();
+        mManager.primeAvailability();
+
+        assertThat(mManager.isAvailable()).isTrue();
+        shadowOf(Looper.getMainLooper()).idle();
+        assertThat(mManager.getAvailability().getValue()).isTrue();
+        verify(mProvider, times(1)).fetch(true);
+    }
 }
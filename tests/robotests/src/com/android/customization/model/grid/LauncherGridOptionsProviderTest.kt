@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.model.grid
+
+import android.content.ContentProvider
+import android.content.ContentValues
+import android.content.Context
+import android.database.Cursor
+import android.database.MatrixCursor
+import android.net.Uri
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.android.customization.testing.TestDefaultCustomizationPreferences
+import com.android.wallpaper.util.PreviewUtils
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mock
+import org.mockito.Mockito.`when`
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class LauncherGridOptionsProviderTest {
+
+    @get:Rule val mockitoRule: MockitoRule = MockitoJUnit.rule()
+
+    @Mock private lateinit var previewUtils: PreviewUtils
+
+    private lateinit var gridProvider: FakeGridProvider
+    private lateinit var underTest: LauncherGridOptionsProvider
+
+    @Before
+    fun setUp() {
+        val context: Context = ApplicationProvider.getApplicationContext()
+        gridProvider =
+            Robolectric.buildContentProvider(FakeGridProvider::class.java).create(AUTHORITY).get()
+        `when`(previewUtils.supportsPreview()).thenReturn(true)
+        `when`(previewUtils.getUri(anyString())).thenAnswer {
+            Uri.parse("content://$AUTHORITY/${it.getArgument<String>(0)}")
+        }
+        underTest =
+            LauncherGridOptionsProvider(
+                context,
+                previewUtils,
+                TestDefaultCustomizationPreferences(),
+            )
+    }
+
+    @Test
+    fun fetch_queriesOnlyReadColumns() {
+        underTest.fetch(/* reload= */ true)
+
+        assertThat(gridProvider.lastProjection?.toList())
+            .containsExactly("name", "rows", "cols", "preview_count", "is_default")
+    }
+
+    @Test
+    fun fetch_readsColumnsByName() {
+        val options = underTest.fetch(/* reload= */ true)
+
+        assertThat(options).hasSize(2)
+        assertThat(options!![0].name).isEqualTo("normal")
+        assertThat(options[0].rows).isEqualTo(5)
+        assertThat(options[0].cols).isEqualTo(4)
+        assertThat(options[0].previewPagesCount).isEqualTo(1)
+        assertThat(options[0].isActive(/* manager= */ null)).isTrue()
+        assertThat(options[0].title).isEqualTo("4x5")
+        assertThat(options[1].name).isEqualTo("practical")
+        assertThat(options[1].isActive(/* manager= */ null)).isFalse()
+        assertThat(options[1].title).isEqualTo("5x6")
+    }
+
+    @Test
+    fun fetch_reusesTitlesOfTheSameLocales() {
+        val title = underTest.fetch(/* reload= */ true)!![0].title
+
+        assertThat(underTest.fetch(/* reload= */ true)!![0].title).isSameInstanceAs(title)
+    }
+
+    @Test
+    fun fetch_afterLocalesChange_formatsTitlesAgain() {
+        val title = underTest.fetch(/* reload= */ true)!![0].title
+
+        RuntimeEnvironment.setQualifiers("fr-rFR")
+
+        val reloadedTitle = underTest.fetch(/* reload= */ true)!![0].title
+        assertThat(reloadedTitle).isNotSameInstanceAs(title)
+        assertThat(reloadedTitle).isEqualTo("4x5")
+    }
+
+    /** Serves grid options with their columns in a different order than the projection. */
+    class FakeGridProvider : ContentProvider() {
+
+        var lastProjection: Array<String>? = null
+            private set
+
+        override fun onCreate(): Boolean = true
+
+        override fun query(
+            uri: Uri,
+            projection: Array<String>?,
+            selection: String?,
+            selectionArgs: Array<String>?,
+            sortOrder: String?,
+        ): Cursor {
+            lastProjection = projection
+            return MatrixCursor(arrayOf("is_default", "preview_count", "cols", "rows", "name"))
+                .apply {
+                    addRow(arrayOf("true", 1, 4, 5, "normal"))
+                    addRow(arrayOf("false", 1, 5, 6, "practical"))
+                }
+        }
+
+        override fun getType(uri: Uri): String? = null
+
+        override fun insert(uri: Uri, values: ContentValues?): Uri? = null
+
+        override fun delete(uri: Uri, selection: String?, selectionArgs: Array<String>?): Int = 0
+
+        override fun update(
+            uri: Uri,
+            values: ContentValues?,
+            selection: String?,
+            selectionArgs: Array<String>?,
+        ): Int = 0
+    }
+
+    companion object {
+        private const val AUTHORITY = "com.android.customization.test.grid"
+    }
+}
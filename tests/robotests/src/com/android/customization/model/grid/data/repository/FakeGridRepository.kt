@@ -50,10 +50,18 @@ class FakeGridRepository(
     private val selectedOptionIndex = MutableStateFlow(0)
     private var options: GridOptionItemsModel = createOptions(count = initialOptionCount)
 
+    var getOptionsCallCount = 0
+        private set
+
     override suspend fun getOptions(): GridOptionItemsModel {
+        getOptionsCallCount++
         return options
     }
 
+    var persistedOptions: GridOptionItemsModel.Loaded? = null
+
+    override suspend fun getPersistedOptions(): GridOptionItemsModel.Loaded? = persistedOptions
+
     override fun getSelectedOption(): GridOption? = null
 
     override fun applySelectedOption(callback: CustomizationManager.Callback) {}
@@ -70,7 +78,7 @@ class FakeGridRepository(
         _optionChanges.tryEmit(Unit)
     }
 
-    private fun createOptions(
+    fun createOptions(
         count: Int,
         selectedIndex: Int = 0,
     ): GridOptionItemsModel {
@@ -26,8 +26,10 @@ import com.android.wallpaper.testing.FakeSnapshotStore
 import com.android.wallpaper.testing.collectLastValue
 import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
 import kotlinx.coroutines.test.runCurrent
 import kotlinx.coroutines.test.runTest
 import org.junit.Before
@@ -138,6 +140,83 @@ class GridInteractorTest {
             assertThat(store.retrieve()).isEqualTo(storedSnapshot)
         }
 
+    @Test
+    fun getSelectedOption_servedFromLoadedOptions() =
+        testScope.runTest {
+            val options = collectLastValue(underTest.options)
+            assertThat(options()).isInstanceOf(GridOptionItemsModel.Loaded::class.java)
+            val getOptionsCallCount = repository.getOptionsCallCount
+
+            assertThat(underTest.getSelectedOption()?.name).isEqualTo("option_0")
+            assertThat(repository.getOptionsCallCount).isEqualTo(getOptionsCallCount)
+        }
+
+    @Test
+    fun getSelectedOption_notObserved_loadsOptions() =
+        testScope.runTest {
+            val job = launch { underTest.options.collect {} }
+            runCurrent()
+            job.cancel()
+            runCurrent()
+            val getOptionsCallCount = repository.getOptionsCallCount
+
+            // The options from when they were observed may be stale by now, they aren't replayed.
+            repository.setOptions(count = 3, selectedIndex = 2)
+            runCurrent()
+
+            assertThat(underTest.getSelectedOption()?.name).isEqualTo("option_2")
+            assertThat(repository.getOptionsCallCount).isGreaterThan(getOptionsCallCount)
+        }
+
+    @Test
+    fun refreshOptions_rateLimited() =
+        testScope.runTest {
+            val options = collectLastValue(underTest.options)
+            assertThat(options()).isInstanceOf(GridOptionItemsModel.Loaded::class.java)
+            val getOptionsCallCount = repository.getOptionsCallCount
+
+            underTest.refreshOptions()
+            runCurrent()
+            assertThat(repository.getOptionsCallCount).isEqualTo(getOptionsCallCount + 1)
+
+            underTest.refreshOptions()
+            underTest.refreshOptions()
+            runCurrent()
+            assertThat(repository.getOptionsCallCount).isEqualTo(getOptionsCallCount + 1)
+
+            advanceTimeBy(1001)
+            runCurrent()
+            assertThat(repository.getOptionsCallCount).isEqualTo(getOptionsCallCount + 2)
+        }
+
+    @Test
+    fun persistedOptions_replacedByLoadedOptionsWhenDifferent() =
+        testScope.runTest {
+            repository.persistedOptions =
+                repository.createOptions(count = 2) as GridOptionItemsModel.Loaded
+            val emissions = mutableListOf<GridOptionItemsModel>()
+            val job = launch { underTest.options.collect { emissions.add(it) } }
+            runCurrent()
+
+            assertThat(emissions.map { (it as GridOptionItemsModel.Loaded).options.size })
+                .containsExactly(2, 3)
+                .inOrder()
+            job.cancel()
+        }
+
+    @Test
+    fun persistedOptions_sameAsLoadedOptions_emittedOnce() =
+        testScope.runTest {
+            repository.persistedOptions =
+                repository.createOptions(count = 3) as GridOptionItemsModel.Loaded
+            val emissions = mutableListOf<GridOptionItemsModel>()
+            val job = launch { underTest.options.collect { emissions.add(it) } }
+            runCurrent()
+
+            assertThat(emissions).hasSize(1)
+            job.cancel()
+        }
+
     @Test
     fun unavailableRepository_emptyOptions() =
         testScope.runTest {
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model.iconpack
+
+import android.content.Context
+import android.os.Looper
+import android.os.UserHandle
+import androidx.test.core.app.ApplicationProvider
+import com.android.customization.model.CustomizationManager.Callback
+import com.android.customization.model.OverlayApplyTask
+import com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_ANDROID
+import com.android.customization.model.theme.OverlayManagerCompat
+import java.util.concurrent.Executors
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyInt
+import org.mockito.ArgumentMatchers.eq
+import org.mockito.Mock
+import org.mockito.Mockito.never
+import org.mockito.Mockito.verify
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+
+/** Tests of {@link IconPackManager}. */
+@RunWith(RobolectricTestRunner::class)
+class IconPackManagerTest {
+
+    @get:Rule val rule: MockitoRule = MockitoJUnit.rule()
+
+    @Mock private lateinit var overlayManager: OverlayManagerCompat
+    @Mock private lateinit var provider: IconPackOptionProvider
+    @Mock private lateinit var callback: Callback
+
+    private lateinit var underTest: IconPackManager
+
+    @Before
+    fun setUp() {
+        // Run the apply steps right away, while the main looper, which gets the results, is idle.
+        OverlayApplyTask.setExecutor { it.run() }
+        val context: Context = ApplicationProvider.getApplicationContext()
+        underTest = IconPackManager(context, overlayManager, provider)
+    }
+
+    @After
+    fun tearDown() {
+        OverlayApplyTask.setExecutor(Executors.newSingleThreadExecutor())
+    }
+
+    @Test
+    fun apply_backToBackBeforeResults_defaultDisablesLastAppliedPack() {
+        val pack1 = createIconPack("pack1")
+        val pack2 = createIconPack("pack2")
+
+        underTest.apply(pack1, null)
+        underTest.apply(pack2, null)
+        underTest.apply(IconPackOption("default", /* isDefault= */ true), null)
+
+        verify(overlayManager).disableOverlay("pack2.android", UserHandle.myUserId())
+        verify(overlayManager, never()).disableOverlay(eq("pack1.android"), anyInt())
+    }
+
+    @Test
+    fun applyAsync_cancelledBeforeRunning_skipsStepsAndCallback() {
+        val queuedSteps = mutableListOf<Runnable>()
+        OverlayApplyTask.setExecutor { queuedSteps.add(it) }
+        val pack1 = createIconPack("pack1")
+
+        underTest.applyAsync(pack1, callback).cancel()
+        underTest.apply(IconPackOption("default", /* isDefault= */ true), null)
+        queuedSteps.forEach { it.run() }
+        shadowOf(Looper.getMainLooper()).idle()
+
+        verify(overlayManager, never()).disableOverlay(eq("pack1.android"), anyInt())
+        verify(callback, never()).onSuccess()
+        verify(callback, never()).onError(any())
+    }
+
+    private fun createIconPack(name: String): IconPackOption {
+        return IconPackOption(name).apply {
+            addOverlayPackage(OVERLAY_CATEGORY_ICON_ANDROID, "$name.android")
+        }
+    }
+}
@@ -21,11 +21,15 @@ import android.graphics.Color
 import android.stats.style.StyleEnums
 import androidx.test.filters.SmallTest
 import androidx.test.platform.app.InstrumentationRegistry
+import com.android.customization.model.ResourceConstants
+import com.android.customization.model.color.ColorOptionImpl
 import com.android.customization.model.color.ColorOptionsProvider
 import com.android.customization.module.logging.TestThemesUserEventLogger
+import com.android.customization.picker.color.data.repository.ColorPickerRepository
 import com.android.customization.picker.color.data.repository.FakeColorPickerRepository
 import com.android.customization.picker.color.domain.interactor.ColorPickerInteractor
 import com.android.customization.picker.color.domain.interactor.ColorPickerSnapshotRestorer
+import com.android.customization.picker.color.shared.model.ColorOptionModel
 import com.android.customization.picker.color.shared.model.ColorType
 import com.android.customization.picker.color.ui.viewmodel.ColorOptionIconViewModel
 import com.android.customization.picker.color.ui.viewmodel.ColorPickerViewModel
@@ -36,6 +40,7 @@ import com.android.wallpaper.testing.FakeSnapshotStore
 import com.android.wallpaper.testing.collectLastValue
 import com.google.common.truth.Truth.assertThat
 import com.google.common.truth.Truth.assertWithMessage
+import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.runBlocking
@@ -228,6 +233,79 @@ class ColorPickerViewModelTest {
             )
         }
 
+    @Test
+    fun `Select a color option selects the equivalent options of all color types`() =
+        testScope.runTest {
+            // Holds the selection as being applied, as the real repository does until the color
+            // options are reloaded.
+            val selectGate = CompletableDeferred<Unit>()
+            val gatedRepository =
+                object : ColorPickerRepository by repository {
+                    override suspend fun select(colorOptionModel: ColorOptionModel) {
+                        selectGate.await()
+                        repository.select(colorOptionModel)
+                    }
+                }
+            lateinit var gatedInteractor: ColorPickerInteractor
+            gatedInteractor =
+                ColorPickerInteractor(
+                    repository = gatedRepository,
+                    snapshotRestorer = {
+                        ColorPickerSnapshotRestorer(interactor = gatedInteractor).apply {
+                            runBlocking { setUpSnapshotRestorer(store = store) }
+                        }
+                    },
+                )
+            underTest =
+                ColorPickerViewModel.Factory(
+                        context = context,
+                        interactor = gatedInteractor,
+                        logger = logger
+                    )
+                    .create(ColorPickerViewModel::class.java)
+            repository.setOptions(
+                listOf(
+                    buildSeedColorOption(ColorType.WALLPAPER_COLOR, "121212"),
+                    buildSeedColorOption(ColorType.WALLPAPER_COLOR, "ABCDEF"),
+                ),
+                listOf(
+                    buildSeedColorOption(ColorType.PRESET_COLOR, "121212"),
+                    buildSeedColorOption(ColorType.PRESET_COLOR, "FEDCBA"),
+                ),
+                ColorType.WALLPAPER_COLOR,
+                1
+            )
+
+            val colorTypes = collectLastValue(underTest.colorTypeTabs)
+            val colorOptions = collectLastValue(underTest.colorOptions)
+            assertColorOptionUiState(colorOptions = colorOptions(), selectedColorOptionIndex = 1)
+
+            selectColorOption(colorOptions, 0)
+
+            assertColorOptionUiState(colorOptions = colorOptions(), selectedColorOptionIndex = 0)
+            colorTypes()?.get(ColorType.PRESET_COLOR)?.onClick?.invoke()
+            assertColorOptionUiState(colorOptions = colorOptions(), selectedColorOptionIndex = 0)
+
+            selectGate.complete(Unit)
+        }
+
+    private fun buildSeedColorOption(type: ColorType, seedColor: String): ColorOptionImpl {
+        val builder = ColorOptionImpl.Builder()
+        builder.lightColors =
+            intArrayOf(Color.TRANSPARENT, Color.TRANSPARENT, Color.TRANSPARENT, Color.TRANSPARENT)
+        builder.darkColors =
+            intArrayOf(Color.TRANSPARENT, Color.TRANSPARENT, Color.TRANSPARENT, Color.TRANSPARENT)
+        builder.type = type
+        builder.source =
+            when (type) {
+                ColorType.WALLPAPER_COLOR -> ColorOptionsProvider.COLOR_SOURCE_HOME
+                ColorType.PRESET_COLOR -> ColorOptionsProvider.COLOR_SOURCE_PRESET
+            }
+        builder.style = Style.TONAL_SPOT
+        builder.addOverlayPackage(ResourceConstants.OVERLAY_CATEGORY_SYSTEM_PALETTE, seedColor)
+        return builder.build()
+    }
+
     /** Simulates a user selecting the affordance at the given index, if that is clickable. */
     private fun TestScope.selectColorOption(
         colorOptions: () -> List<OptionItemViewModel<ColorOptionIconViewModel>>?,
@@ -22,6 +22,7 @@ import com.android.customization.picker.quickaffordance.data.repository.Keyguard
 import com.android.customization.picker.quickaffordance.domain.interactor.KeyguardQuickAffordancePickerInteractor
 import com.android.customization.picker.quickaffordance.domain.interactor.KeyguardQuickAffordanceSnapshotRestorer
 import com.android.customization.picker.quickaffordance.shared.model.KeyguardQuickAffordancePickerSelectionModel
+import com.android.systemui.shared.customization.data.content.CustomizationProviderClient
 import com.android.systemui.shared.customization.data.content.FakeCustomizationProviderClient
 import com.android.systemui.shared.keyguard.shared.model.KeyguardQuickAffordanceSlots
 import com.android.wallpaper.testing.FakeSnapshotStore
@@ -29,10 +30,13 @@ import com.android.wallpaper.testing.collectLastValue
 import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.StandardTestDispatcher
 import kotlinx.coroutines.test.TestScope
 import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runCurrent
 import kotlinx.coroutines.test.runTest
 import kotlinx.coroutines.test.setMain
 import org.junit.After
@@ -50,6 +54,9 @@ class KeyguardQuickAffordancePickerInteractorTest {
 
     private lateinit var testScope: TestScope
     private lateinit var client: FakeCustomizationProviderClient
+    // The selection writes made through the client.
+    private var insertSelectionCount = 0
+    private var deleteAllSelectionsCount = 0
 
     @Before
     fun setUp() {
@@ -57,14 +64,26 @@ class KeyguardQuickAffordancePickerInteractorTest {
         testScope = TestScope(testDispatcher)
         Dispatchers.setMain(testDispatcher)
         client = FakeCustomizationProviderClient()
+        val countingClient =
+            object : CustomizationProviderClient by client {
+                override suspend fun insertSelection(slotId: String, affordanceId: String) {
+                    insertSelectionCount++
+                    client.insertSelection(slotId, affordanceId)
+                }
+
+                override suspend fun deleteAllSelections(slotId: String) {
+                    deleteAllSelectionsCount++
+                    client.deleteAllSelections(slotId)
+                }
+            }
         underTest =
             KeyguardQuickAffordancePickerInteractor(
                 repository =
                     KeyguardQuickAffordancePickerRepository(
-                        client = client,
+                        client = countingClient,
                         scope = testScope.backgroundScope,
                     ),
-                client = client,
+                client = countingClient,
                 snapshotRestorer = {
                     KeyguardQuickAffordanceSnapshotRestorer(
                             interactor = underTest,
@@ -138,4 +157,88 @@ class KeyguardQuickAffordancePickerInteractorTest {
 
             assertThat(selections()).isEmpty()
         }
+
+    @Test
+    fun setSelections() =
+        testScope.runTest {
+            client.setSlotCapacity(KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END, 2)
+            val selections = collectLastValue(underTest.selections)
+            val emissions = mutableListOf<List<KeyguardQuickAffordancePickerSelectionModel>>()
+            backgroundScope.launch { underTest.selections.toList(emissions) }
+            underTest.select(
+                slotId = KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_START,
+                affordanceId = FakeCustomizationProviderClient.AFFORDANCE_1,
+            )
+            runCurrent()
+            val emissionCount = emissions.size
+            insertSelectionCount = 0
+            deleteAllSelectionsCount = 0
+
+            underTest.setSelections(
+                mapOf(
+                    KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END to
+                        listOf(
+                            FakeCustomizationProviderClient.AFFORDANCE_2,
+                            FakeCustomizationProviderClient.AFFORDANCE_3,
+                        ),
+                )
+            )
+
+            assertThat(selections())
+                .isEqualTo(
+                    listOf(
+                        KeyguardQuickAffordancePickerSelectionModel(
+                            slotId = KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END,
+                            affordanceId = FakeCustomizationProviderClient.AFFORDANCE_2,
+                        ),
+                        KeyguardQuickAffordancePickerSelectionModel(
+                            slotId = KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END,
+                            affordanceId = FakeCustomizationProviderClient.AFFORDANCE_3,
+                        ),
+                    )
+                )
+            // Observers only see the final selections.
+            assertThat(emissions).hasSize(emissionCount + 1)
+            assertThat(emissions.last()).isEqualTo(selections())
+            // The start slot is cleared, the two affordances are inserted in the end slot.
+            assertThat(deleteAllSelectionsCount).isEqualTo(1)
+            assertThat(insertSelectionCount).isEqualTo(2)
+        }
+
+    @Test
+    fun select_insertsSelectionOnly() =
+        testScope.runTest {
+            underTest.select(
+                slotId = KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_START,
+                affordanceId = FakeCustomizationProviderClient.AFFORDANCE_1,
+            )
+
+            assertThat(insertSelectionCount).isEqualTo(1)
+            assertThat(deleteAllSelectionsCount).isEqualTo(0)
+        }
+
+    @Test
+    fun unselectAllFromSlot_deletesSlotSelectionsOnly() =
+        testScope.runTest {
+            val selections = collectLastValue(underTest.selections)
+            underTest.select(
+                slotId = KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_START,
+                affordanceId = FakeCustomizationProviderClient.AFFORDANCE_1,
+            )
+            underTest.select(
+                slotId = KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END,
+                affordanceId = FakeCustomizationProviderClient.AFFORDANCE_2,
+            )
+            insertSelectionCount = 0
+            deleteAllSelectionsCount = 0
+
+            underTest.unselectAllFromSlot(
+                slotId = KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END,
+            )
+
+            assertThat(insertSelectionCount).isEqualTo(0)
+            assertThat(deleteAllSelectionsCount).isEqualTo(1)
+            assertThat(selections()?.map { it.slotId })
+                .containsExactly(KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_START)
+        }
 }
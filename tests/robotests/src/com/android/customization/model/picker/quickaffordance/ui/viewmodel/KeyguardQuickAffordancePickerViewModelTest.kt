@@ -19,6 +19,8 @@ package com.android.customization.model.picker.quickaffordance.ui.viewmodel
 
 import android.content.Context
 import android.content.Intent
+import android.graphics.drawable.ColorDrawable
+import android.graphics.drawable.Drawable
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.filters.SmallTest
 import com.android.customization.module.logging.TestThemesUserEventLogger
@@ -27,7 +29,6 @@ import com.android.customization.picker.quickaffordance.domain.interactor.Keygua
 import com.android.customization.picker.quickaffordance.domain.interactor.KeyguardQuickAffordanceSnapshotRestorer
 import com.android.customization.picker.quickaffordance.ui.viewmodel.KeyguardQuickAffordancePickerViewModel
 import com.android.customization.picker.quickaffordance.ui.viewmodel.KeyguardQuickAffordanceSlotViewModel
-import com.android.customization.picker.quickaffordance.ui.viewmodel.KeyguardQuickAffordanceSummaryViewModel
 import com.android.systemui.shared.customization.data.content.CustomizationProviderClient
 import com.android.systemui.shared.customization.data.content.FakeCustomizationProviderClient
 import com.android.systemui.shared.keyguard.shared.model.KeyguardQuickAffordanceSlots
@@ -48,10 +49,13 @@ import com.google.common.truth.Truth.assertThat
 import com.google.common.truth.Truth.assertWithMessage
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.StandardTestDispatcher
 import kotlinx.coroutines.test.TestScope
 import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runCurrent
 import kotlinx.coroutines.test.runTest
 import kotlinx.coroutines.test.setMain
 import org.junit.After
@@ -117,6 +121,7 @@ class KeyguardQuickAffordancePickerViewModelTest {
                     wallpaperInteractor = wallpaperInteractor,
                     wallpaperInfoFactory = TestCurrentWallpaperInfoFactory(context),
                     logger = logger,
+                    backgroundDispatcher = testDispatcher,
                 )
                 .create(KeyguardQuickAffordancePickerViewModel::class.java)
     }
@@ -244,6 +249,33 @@ class KeyguardQuickAffordancePickerViewModelTest {
             )
         }
 
+    @Test
+    fun `Keep the view-model of a slot whose state did not change`() =
+        testScope.runTest {
+            val slots = collectLastValue(underTest.slots)
+            val quickAffordances = collectLastValue(underTest.quickAffordances)
+            val bottomStartSlot = slots()?.get(KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_START)
+            val bottomEndSlot = slots()?.get(KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END)
+
+            // Select "affordance 1" for the first slot.
+            selectAffordance(quickAffordances, 1)
+            // Add an affordance that no slot selects.
+            client.addAffordance(
+                CustomizationProviderClient.Affordance(
+                    id = "unselected",
+                    name = "unselected",
+                    iconResourceId = 1,
+                    isEnabled = true,
+                    configureIntent = Intent("some.action"),
+                )
+            )
+
+            assertThat(slots()?.get(KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_START))
+                .isNotSameInstanceAs(bottomStartSlot)
+            assertThat(slots()?.get(KeyguardQuickAffordanceSlots.SLOT_ID_BOTTOM_END))
+                .isSameInstanceAs(bottomEndSlot)
+        }
+
     @Test
     fun `Show enablement dialog when selecting a disabled affordance`() =
         testScope.runTest {
@@ -275,8 +307,11 @@ class KeyguardQuickAffordancePickerViewModelTest {
             selectAffordance(quickAffordances, affordanceIndex + 1)
 
             // We expect there to be a dialog that should be shown:
-            assertThat(dialog()?.icon)
-                .isEqualTo(Icon.Loaded(FakeCustomizationProviderClient.ICON_1, null))
+            assertLoadedIcon(
+                icon = dialog()?.icon,
+                expectedDrawable = FakeCustomizationProviderClient.ICON_1,
+                expectedContentDescription = null,
+            )
             assertThat(dialog()?.headline)
                 .isEqualTo(Text.Resource(R.string.keyguard_affordance_enablement_dialog_headline))
             assertThat(dialog()?.message).isEqualTo(Text.Loaded(enablementExplanation))
@@ -301,6 +336,30 @@ class KeyguardQuickAffordancePickerViewModelTest {
             assertThat(dialog()).isNull()
         }
 
+    @Test
+    fun `Emit affordances with placeholder icons, then with their loaded icons`() =
+        testScope.runTest {
+            val emissions = mutableListOf<List<OptionItemViewModel<Icon>>>()
+            backgroundScope.launch { underTest.quickAffordances.toList(emissions) }
+
+            runCurrent()
+
+            assertThat(emissions.size).isAtLeast(2)
+            val placeholderOption = emissions.first()[1]
+            assertThat((placeholderOption.payload as Icon.Loaded).drawable)
+                .isInstanceOf(ColorDrawable::class.java)
+            val loadedOption = emissions.last()[1]
+            assertLoadedIcon(
+                icon = loadedOption.payload,
+                expectedDrawable = FakeCustomizationProviderClient.ICON_1,
+                expectedContentDescription = null,
+            )
+            // Loading icons doesn't recreate the state of the options.
+            assertThat(loadedOption.key).isSameInstanceAs(placeholderOption.key)
+            assertThat(loadedOption.isSelected).isSameInstanceAs(placeholderOption.isSelected)
+            assertThat(loadedOption.onClicked).isSameInstanceAs(placeholderOption.onClicked)
+        }
+
     @Test
     fun `Start settings activity when long-pressing an affordance`() =
         testScope.runTest {
@@ -345,26 +404,23 @@ class KeyguardQuickAffordancePickerViewModelTest {
             // Second, select the "affordance 3" affordance:
             selectAffordance(quickAffordances, 3)
 
-            assertThat(summary())
+            assertThat(summary()?.description)
                 .isEqualTo(
-                    KeyguardQuickAffordanceSummaryViewModel(
-                        description =
-                            Text.Loaded(
-                                "${FakeCustomizationProviderClient.AFFORDANCE_1}," +
-                                    " ${FakeCustomizationProviderClient.AFFORDANCE_3}"
-                            ),
-                        icon1 =
-                            Icon.Loaded(
-                                FakeCustomizationProviderClient.ICON_1,
-                                Text.Loaded("Left shortcut")
-                            ),
-                        icon2 =
-                            Icon.Loaded(
-                                FakeCustomizationProviderClient.ICON_3,
-                                Text.Loaded("Right shortcut")
-                            ),
+                    Text.Loaded(
+                        "${FakeCustomizationProviderClient.AFFORDANCE_1}," +
+                            " ${FakeCustomizationProviderClient.AFFORDANCE_3}"
                     )
                 )
+            assertLoadedIcon(
+                icon = summary()?.icon1,
+                expectedDrawable = FakeCustomizationProviderClient.ICON_1,
+                expectedContentDescription = Text.Loaded("Left shortcut"),
+            )
+            assertLoadedIcon(
+                icon = summary()?.icon2,
+                expectedDrawable = FakeCustomizationProviderClient.ICON_3,
+                expectedContentDescription = Text.Loaded("Right shortcut"),
+            )
         }
 
     @Test
@@ -377,18 +433,14 @@ class KeyguardQuickAffordancePickerViewModelTest {
             // Select "affordance 1" for the first slot.
             selectAffordance(quickAffordances, 1)
 
-            assertThat(summary())
-                .isEqualTo(
-                    KeyguardQuickAffordanceSummaryViewModel(
-                        description = Text.Loaded(FakeCustomizationProviderClient.AFFORDANCE_1),
-                        icon1 =
-                            Icon.Loaded(
-                                FakeCustomizationProviderClient.ICON_1,
-                                Text.Loaded("Left shortcut")
-                            ),
-                        icon2 = null,
-                    )
-                )
+            assertThat(summary()?.description)
+                .isEqualTo(Text.Loaded(FakeCustomizationProviderClient.AFFORDANCE_1))
+            assertLoadedIcon(
+                icon = summary()?.icon1,
+                expectedDrawable = FakeCustomizationProviderClient.ICON_1,
+                expectedContentDescription = Text.Loaded("Left shortcut"),
+            )
+            assertThat(summary()?.icon2).isNull()
         }
 
     @Test
@@ -404,18 +456,14 @@ class KeyguardQuickAffordancePickerViewModelTest {
             // Second, select the "affordance 3" affordance:
             selectAffordance(quickAffordances, 3)
 
-            assertThat(summary())
-                .isEqualTo(
-                    KeyguardQuickAffordanceSummaryViewModel(
-                        description = Text.Loaded(FakeCustomizationProviderClient.AFFORDANCE_3),
-                        icon1 = null,
-                        icon2 =
-                            Icon.Loaded(
-                                FakeCustomizationProviderClient.ICON_3,
-                                Text.Loaded("Right shortcut")
-                            ),
-                    )
-                )
+            assertThat(summary()?.description)
+                .isEqualTo(Text.Loaded(FakeCustomizationProviderClient.AFFORDANCE_3))
+            assertThat(summary()?.icon1).isNull()
+            assertLoadedIcon(
+                icon = summary()?.icon2,
+                expectedDrawable = FakeCustomizationProviderClient.ICON_3,
+                expectedContentDescription = Text.Loaded("Right shortcut"),
+            )
         }
 
     @Test
@@ -490,6 +538,26 @@ class KeyguardQuickAffordancePickerViewModelTest {
         assertWithMessage("No affordance is selected!").that(foundSelectedAffordance).isTrue()
     }
 
+    /**
+     * Asserts that an icon was loaded from the expected drawable. Icons are handed out as copies
+     * sharing the constant state of the loaded drawable, rather than the drawable itself.
+     */
+    private fun assertLoadedIcon(
+        icon: Icon?,
+        expectedDrawable: Drawable,
+        expectedContentDescription: Text?,
+    ) {
+        assertThat(icon).isInstanceOf(Icon.Loaded::class.java)
+        val loadedIcon = icon as Icon.Loaded
+        val expectedConstantState = expectedDrawable.constantState
+        if (expectedConstantState != null) {
+            assertThat(loadedIcon.drawable.constantState).isSameInstanceAs(expectedConstantState)
+        } else {
+            assertThat(loadedIcon.drawable).isSameInstanceAs(expectedDrawable)
+        }
+        assertThat(loadedIcon.contentDescription).isEqualTo(expectedContentDescription)
+    }
+
     /**
      * Asserts that a slot tab has the correct UI state.
      *
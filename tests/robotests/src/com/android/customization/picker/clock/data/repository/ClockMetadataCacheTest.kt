@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.picker.clock.data.repository
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.android.customization.picker.clock.data.repository.ClockMetadataCache.ClockStaticMetadata
+import com.android.customization.testing.TestDefaultCustomizationPreferences
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.Executor
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class ClockMetadataCacheTest {
+
+    private lateinit var context: Context
+    private lateinit var preferences: TestDefaultCustomizationPreferences
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        preferences = TestDefaultCustomizationPreferences()
+        RuntimeEnvironment.setQualifiers("en-rUS-notnight")
+    }
+
+    @Test
+    fun newSession_sameConfiguration_restoresMetadataAndClockIds() {
+        createCache().apply {
+            put(CLOCK_ID, DESCRIPTION, isReactiveToTone = true)
+            putClockIds(setOf(CLOCK_ID))
+        }
+
+        val underTest = createCache()
+
+        assertThat(underTest.get(CLOCK_ID))
+            .isEqualTo(ClockStaticMetadata(DESCRIPTION, isReactiveToTone = true))
+        assertThat(underTest.knownClockIds.value).containsExactly(CLOCK_ID)
+    }
+
+    @Test
+    fun newSession_otherLocales_dropsMetadataButKeepsClockIds() {
+        createCache().apply {
+            put(CLOCK_ID, DESCRIPTION, isReactiveToTone = true)
+            putClockIds(setOf(CLOCK_ID))
+        }
+
+        RuntimeEnvironment.setQualifiers("fr-rFR")
+        val underTest = createCache()
+
+        assertThat(underTest.get(CLOCK_ID)).isNull()
+        assertThat(underTest.knownClockIds.value).containsExactly(CLOCK_ID)
+    }
+
+    @Test
+    fun newSession_otherUiMode_dropsMetadata() {
+        createCache().put(CLOCK_ID, DESCRIPTION, isReactiveToTone = true)
+
+        RuntimeEnvironment.setQualifiers("+night")
+        val underTest = createCache()
+
+        assertThat(underTest.get(CLOCK_ID)).isNull()
+    }
+
+    @Test
+    fun get_afterLocalesChange_dropsMetadataOfPreviousLocales() {
+        val underTest = createCache()
+        underTest.put(CLOCK_ID, DESCRIPTION, isReactiveToTone = true)
+
+        RuntimeEnvironment.setQualifiers("fr-rFR")
+
+        assertThat(underTest.get(CLOCK_ID)).isNull()
+        underTest.put(CLOCK_ID, FRENCH_DESCRIPTION, isReactiveToTone = true)
+        assertThat(createCache().get(CLOCK_ID))
+            .isEqualTo(ClockStaticMetadata(FRENCH_DESCRIPTION, isReactiveToTone = true))
+    }
+
+    private fun createCache(): ClockMetadataCache {
+        return ClockMetadataCache(context, preferences, Executor { it.run() })
+    }
+
+    companion object {
+        private const val CLOCK_ID = "clock"
+        private const val DESCRIPTION = "Clock"
+        private const val FRENCH_DESCRIPTION = "Horloge"
+    }
+}
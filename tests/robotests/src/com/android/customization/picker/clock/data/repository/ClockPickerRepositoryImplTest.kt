@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.picker.clock.data.repository
+
+import android.graphics.Color
+import androidx.test.filters.SmallTest
+import com.android.systemui.plugins.clocks.ClockMetadata
+import com.android.systemui.plugins.clocks.ClockSettings
+import com.android.systemui.shared.clocks.ClockRegistry
+import com.android.systemui.shared.settings.data.repository.FakeSecureSettingsRepository
+import com.android.wallpaper.testing.collectLastValue
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceUntilIdle
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.json.JSONObject
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers
+import org.mockito.Mock
+import org.mockito.Mockito.doAnswer
+import org.mockito.Mockito.`when`
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+import org.robolectric.RobolectricTestRunner
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class ClockPickerRepositoryImplTest {
+
+    @get:Rule val mockitoRule: MockitoRule = MockitoJUnit.rule()
+
+    @Mock private lateinit var registry: ClockRegistry
+
+    private lateinit var testScope: TestScope
+    private lateinit var underTest: ClockPickerRepositoryImpl
+    // What the registry has written, and the listeners it reports changes to.
+    private var settings = ClockSettings(clockId = CLOCK_A, seedColor = null)
+    private var mutationCount = 0
+    private val listeners = mutableListOf<ClockRegistry.ClockChangeListener>()
+
+    @Before
+    fun setUp() {
+        val testDispatcher = StandardTestDispatcher()
+        testScope = TestScope(testDispatcher)
+        `when`(registry.getClocks())
+            .thenReturn(listOf(CLOCK_A, CLOCK_B, CLOCK_C).map { ClockMetadata(it) })
+        `when`(registry.activeClockId).thenAnswer { settings.clockId }
+        `when`(registry.settings).thenAnswer { settings }
+        `when`(registry.seedColor).thenAnswer { settings.seedColor }
+        doAnswer { listeners.add(it.getArgument(0)) }
+            .`when`(registry)
+            .registerClockChangeListener(any())
+        doAnswer { listeners.remove(it.getArgument(0)) }
+            .`when`(registry)
+            .unregisterClockChangeListener(any())
+        doAnswer {
+                mutationCount++
+                applySettings(it.getArgument<(ClockSettings) -> ClockSettings>(0)(settings))
+            }
+            .`when`(registry)
+            .mutateSetting(any())
+        underTest =
+            ClockPickerRepositoryImpl(
+                secureSettingsRepository = FakeSecureSettingsRepository(),
+                registry = registry,
+                isClockListSettled = MutableStateFlow(true),
+                scope = testScope.backgroundScope,
+                mainDispatcher = testDispatcher,
+                backgroundDispatcher = testDispatcher,
+            )
+    }
+
+    @Test
+    fun setSelectedClock_writesOnceChangesAreQuiet() =
+        testScope.runTest {
+            underTest.setSelectedClock(CLOCK_B)
+            underTest.setSelectedClock(CLOCK_C)
+            runCurrent()
+            assertThat(mutationCount).isEqualTo(0)
+
+            advanceUntilIdle()
+
+            assertThat(mutationCount).isEqualTo(1)
+            assertThat(settings.clockId).isEqualTo(CLOCK_C)
+        }
+
+    @Test
+    fun flushPendingChanges_writesBeforeReturning() =
+        testScope.runTest {
+            underTest.setSelectedClock(CLOCK_B)
+            underTest.setClockColor(
+                selectedColorId = COLOR_ID,
+                colorToneProgress = COLOR_TONE_PROGRESS,
+                seedColor = Color.RED,
+            )
+
+            underTest.flushPendingChanges()
+
+            assertThat(mutationCount).isEqualTo(1)
+            assertThat(settings.clockId).isEqualTo(CLOCK_B)
+            assertThat(settings.seedColor).isEqualTo(Color.RED)
+            advanceUntilIdle()
+            assertThat(mutationCount).isEqualTo(1)
+        }
+
+    @Test
+    fun pendingChanges_writtenWhileNotObserved_doNotHideLaterChanges() =
+        testScope.runTest {
+            underTest.setSelectedClock(CLOCK_B)
+            underTest.flushPendingChanges()
+            // Another client selects a clock once the change was written.
+            applySettings(ClockSettings(clockId = CLOCK_C, seedColor = null))
+
+            val selectedClock = collectLastValue(underTest.selectedClock)
+
+            assertThat(selectedClock()?.clockId).isEqualTo(CLOCK_C)
+        }
+
+    @Test
+    fun allClocks_pendingSelection_emitsBeforeWrite() =
+        testScope.runTest {
+            val allClocks = collectLastValue(underTest.allClocks)
+            assertThat(allClocks()?.single { it.isSelected }?.clockId).isEqualTo(CLOCK_A)
+
+            underTest.setSelectedClock(CLOCK_B)
+            runCurrent()
+
+            assertThat(mutationCount).isEqualTo(0)
+            assertThat(allClocks()?.single { it.isSelected }?.clockId).isEqualTo(CLOCK_B)
+        }
+
+    @Test
+    fun pendingColor_writtenAsMetadataOnlyChange_doesNotHideLaterChanges() =
+        testScope.runTest {
+            val mutations = mutableListOf<(ClockSettings) -> ClockSettings>()
+            doAnswer { mutations.add(it.getArgument(0)) }.`when`(registry).mutateSetting(any())
+            underTest.setClockColor(
+                selectedColorId = COLOR_ID,
+                colorToneProgress = COLOR_TONE_PROGRESS,
+                seedColor = null,
+            )
+            underTest.flushPendingChanges()
+            // The registry writes the change later, and the seed color and clock are unchanged, so
+            // it doesn't report it.
+            settings = mutations.single()(settings)
+
+            // Another client then picks another color, which the registry does report.
+            applySettings(
+                ClockSettings(clockId = CLOCK_A, seedColor = Color.BLUE).apply {
+                    metadata =
+                        JSONObject()
+                            .put(KEY_METADATA_SELECTED_COLOR_ID, OTHER_COLOR_ID)
+                            .put(KEY_METADATA_COLOR_TONE_PROGRESS, OTHER_COLOR_TONE_PROGRESS)
+                }
+            )
+            val selectedClock = collectLastValue(underTest.selectedClock)
+
+            assertThat(selectedClock()?.selectedColorId).isEqualTo(OTHER_COLOR_ID)
+            assertThat(selectedClock()?.colorToneProgress).isEqualTo(OTHER_COLOR_TONE_PROGRESS)
+            assertThat(selectedClock()?.seedColor).isEqualTo(Color.BLUE)
+        }
+
+    private fun applySettings(newSettings: ClockSettings) {
+        settings = newSettings
+        listeners.toList().forEach { it.onCurrentClockChanged() }
+    }
+
+    private fun <T> any(): T = ArgumentMatchers.any<T>()
+
+    companion object {
+        private const val CLOCK_A = "clock_a"
+        private const val CLOCK_B = "clock_b"
+        private const val CLOCK_C = "clock_c"
+        private const val COLOR_ID = "RED"
+        private const val COLOR_TONE_PROGRESS = 87
+        private const val OTHER_COLOR_ID = "BLUE"
+        private const val OTHER_COLOR_TONE_PROGRESS = 10
+        private const val KEY_METADATA_SELECTED_COLOR_ID = "metadataSelectedColorId"
+        private const val KEY_METADATA_COLOR_TONE_PROGRESS = "metadataColorToneProgress"
+    }
+}
@@ -74,6 +74,9 @@ open class FakeClockPickerRepository(clocks: List<ClockMetadataModel> = fakeCloc
         _selectedClockSize.value = size
     }
 
+    /** Changes are applied right away, there is never anything to flush. */
+    override fun flushPendingChanges() {}
+
     companion object {
         const val CLOCK_ID_0 = "clock0"
         const val CLOCK_ID_1 = "clock1"
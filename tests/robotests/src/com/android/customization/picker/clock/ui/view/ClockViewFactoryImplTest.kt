@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.picker.clock.ui.view
+
+import android.app.Activity
+import android.app.WallpaperManager
+import android.content.Context
+import android.content.Intent
+import android.graphics.Color
+import android.graphics.Point
+import android.os.Looper
+import android.view.View
+import android.widget.FrameLayout
+import androidx.lifecycle.LifecycleOwner
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.android.systemui.plugins.clocks.ClockConfig
+import com.android.systemui.plugins.clocks.ClockController
+import com.android.systemui.plugins.clocks.ClockFaceController
+import com.android.systemui.shared.clocks.ClockRegistry
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.anyBoolean
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mock
+import org.mockito.Mockito.RETURNS_DEEP_STUBS
+import org.mockito.Mockito.`when`
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.never
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class ClockViewFactoryImplTest {
+
+    @get:Rule val mockitoRule: MockitoRule = MockitoJUnit.rule()
+
+    @Mock private lateinit var registry: ClockRegistry
+    @Mock private lateinit var wallpaperManager: WallpaperManager
+
+    private lateinit var context: Context
+    private lateinit var underTest: ClockViewFactoryImpl
+    // The controllers created by the registry for each clock, oldest first.
+    private val createdControllers = mutableMapOf<String, MutableList<ClockController>>()
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        `when`(registry.createExampleClock(anyString())).thenAnswer {
+            val clockId = it.getArgument<String>(0)
+            createController(clockId).also { controller ->
+                createdControllers.getOrPut(clockId) { mutableListOf() }.add(controller)
+            }
+        }
+        underTest =
+            ClockViewFactoryImpl(
+                appContext = context,
+                screenSize = Point(1080, 2340),
+                wallpaperManager = wallpaperManager,
+                registry = registry,
+                maxControllerCount = 2,
+            )
+    }
+
+    @Test
+    fun getController_poolFull_evictsLeastRecentlyUsedClock() {
+        val clockA = underTest.getController(CLOCK_A)
+        val clockB = underTest.getController(CLOCK_B)
+        // Clock A is now more recently used than clock B.
+        underTest.getController(CLOCK_A)
+
+        underTest.getController(CLOCK_C)
+
+        assertThat(underTest.evictedControllerCount).isEqualTo(1)
+        assertThat(underTest.getController(CLOCK_A)).isSameInstanceAs(clockA)
+        assertThat(underTest.getController(CLOCK_B)).isNotSameInstanceAs(clockB)
+        assertThat(createdControllers[CLOCK_A]).hasSize(1)
+        assertThat(createdControllers[CLOCK_B]).hasSize(2)
+    }
+
+    @Test
+    fun getController_poolFull_neverEvictsAttachedClock() {
+        underTest.getController(CLOCK_A)
+        val clockB = underTest.getController(CLOCK_B)
+        attachToWindow(underTest.getLargeView(CLOCK_B))
+        // Clock B is now the least recently used clock, but it's on screen.
+        underTest.getController(CLOCK_A)
+
+        underTest.getController(CLOCK_C)
+
+        assertThat(underTest.getController(CLOCK_B)).isSameInstanceAs(clockB)
+        assertThat(createdControllers[CLOCK_B]).hasSize(1)
+        assertThat(createdControllers[CLOCK_A]).hasSize(1)
+        underTest.getController(CLOCK_A)
+        assertThat(createdControllers[CLOCK_A]).hasSize(2)
+    }
+
+    @Test
+    fun getController_afterEviction_restoresSeedColor() {
+        underTest.getController(CLOCK_A)
+        underTest.updateColor(CLOCK_A, Color.RED)
+        underTest.getController(CLOCK_B)
+        underTest.getController(CLOCK_C)
+        assertThat(underTest.evictedControllerCount).isEqualTo(1)
+
+        val recreatedClockA = underTest.getController(CLOCK_A)
+
+        assertThat(createdControllers[CLOCK_A]).hasSize(2)
+        verify(recreatedClockA.events).onSeedColorChanged(Color.RED)
+    }
+
+    @Test
+    fun getController_afterEviction_restoresSeedColorForAllClocks() {
+        underTest.getController(CLOCK_A)
+        underTest.updateColorForAllClocks(Color.BLUE)
+        underTest.getController(CLOCK_B)
+        underTest.getController(CLOCK_C)
+
+        val recreatedClockA = underTest.getController(CLOCK_A)
+
+        assertThat(createdControllers[CLOCK_A]).hasSize(2)
+        verify(recreatedClockA.events).onSeedColorChanged(Color.BLUE)
+    }
+
+    @Test
+    fun getController_afterEviction_restoresTimeFormat() {
+        underTest.getController(CLOCK_A)
+        underTest.getController(CLOCK_B)
+        underTest.getController(CLOCK_C)
+
+        val recreatedClockA = underTest.getController(CLOCK_A)
+
+        assertThat(createdControllers[CLOCK_A]).hasSize(2)
+        verify(recreatedClockA.events).onTimeFormatChanged(anyBoolean())
+    }
+
+    @Test
+    fun getLargeView_returnsLiveViewInCenteredState() {
+        val clockA = underTest.getController(CLOCK_A)
+
+        val largeView = underTest.getLargeView(CLOCK_A)
+
+        assertThat(largeView).isSameInstanceAs(clockA.largeClock.view)
+        verify(clockA.largeClock.animations).onPickerCarouselSwiping(1F)
+        verify(clockA.largeClock.animations, never()).onPickerCarouselSwiping(0F)
+    }
+
+    @Test
+    fun getLargeSnapshotView_rendersOffCenterStateWithSeparateController() {
+        val liveClockA = underTest.getController(CLOCK_A)
+
+        attachToWindow(underTest.getLargeSnapshotView(CLOCK_A))
+
+        assertThat(createdControllers[CLOCK_A]).hasSize(2)
+        val snapshotClockA = createdControllers.getValue(CLOCK_A)[1]
+        verify(snapshotClockA.largeClock.animations).onPickerCarouselSwiping(0F)
+        verify(liveClockA.largeClock.animations, never()).onPickerCarouselSwiping(0F)
+        // Only the live controller is pooled.
+        assertThat(underTest.createdControllerCount).isEqualTo(1)
+    }
+
+    @Test
+    fun getLargeSnapshotView_attached_renderedAgainOnTimeTickAndColorChange() {
+        attachToWindow(underTest.getLargeSnapshotView(CLOCK_A))
+        val snapshotClockA = createdControllers.getValue(CLOCK_A).single()
+        verify(snapshotClockA.largeClock.events, times(1)).onTimeTick()
+
+        underTest.registerTimeTicker(createLifecycleOwner())
+        sendTimeTick()
+        verify(snapshotClockA.largeClock.events, times(3)).onTimeTick()
+
+        underTest.updateColor(CLOCK_A, Color.RED)
+        verify(snapshotClockA.events).onSeedColorChanged(Color.RED)
+        // No live controller is needed to render the snapshot.
+        assertThat(underTest.createdControllerCount).isEqualTo(0)
+    }
+
+    @Test
+    fun registerTimeTicker_ticksClocksOnScreen() {
+        val clockA = underTest.getController(CLOCK_A)
+        attachToWindow(underTest.getLargeView(CLOCK_A))
+
+        underTest.registerTimeTicker(createLifecycleOwner())
+        // Time went by while no ticks were received.
+        verify(clockA.largeClock.events, times(1)).onTimeTick()
+
+        sendTimeTick()
+        verify(clockA.largeClock.events, times(2)).onTimeTick()
+    }
+
+    @Test
+    fun timeTick_clockNotOnScreen_catchesUpOnceAttached() {
+        val clockA = underTest.getController(CLOCK_A)
+        underTest.registerTimeTicker(createLifecycleOwner())
+
+        sendTimeTick()
+        sendTimeTick()
+        verify(clockA.largeClock.events, never()).onTimeTick()
+
+        attachToWindow(underTest.getLargeView(CLOCK_A))
+        verify(clockA.largeClock.events, times(1)).onTimeTick()
+    }
+
+    @Test
+    fun timeTick_clockHidden_catchesUpOnceShownAgain() {
+        val clockA = underTest.getController(CLOCK_A)
+        val largeView = underTest.getLargeView(CLOCK_A)
+        attachToWindow(largeView)
+        underTest.registerTimeTicker(createLifecycleOwner())
+        verify(clockA.largeClock.events, times(1)).onTimeTick()
+
+        largeView.visibility = View.INVISIBLE
+        sendTimeTick()
+        sendTimeTick()
+        largeView.viewTreeObserver.dispatchOnPreDraw()
+        verify(clockA.largeClock.events, times(1)).onTimeTick()
+
+        largeView.visibility = View.VISIBLE
+        largeView.viewTreeObserver.dispatchOnPreDraw()
+        verify(clockA.largeClock.events, times(2)).onTimeTick()
+
+        // Caught up, later frames don't tick it again.
+        largeView.viewTreeObserver.dispatchOnPreDraw()
+        verify(clockA.largeClock.events, times(2)).onTimeTick()
+    }
+
+    @Test
+    fun attach_clockNotStale_isNotTicked() {
+        val clockA = underTest.getController(CLOCK_A)
+
+        attachToWindow(underTest.getLargeView(CLOCK_A))
+
+        verify(clockA.largeClock.events, never()).onTimeTick()
+    }
+
+    @Test
+    fun unregisterTimeTicker_ownersWithEqualHashCodes_keepsTickingForOtherOwner() {
+        val clockA = underTest.getController(CLOCK_A)
+        attachToWindow(underTest.getLargeView(CLOCK_A))
+        val owner1 = createLifecycleOwner(hashCode = 1)
+        val owner2 = createLifecycleOwner(hashCode = 1)
+        underTest.registerTimeTicker(owner1)
+        underTest.registerTimeTicker(owner2)
+        verify(clockA.largeClock.events, times(1)).onTimeTick()
+
+        underTest.unregisterTimeTicker(owner1)
+        sendTimeTick()
+        verify(clockA.largeClock.events, times(2)).onTimeTick()
+
+        underTest.unregisterTimeTicker(owner2)
+        sendTimeTick()
+        verify(clockA.largeClock.events, times(2)).onTimeTick()
+    }
+
+    private fun sendTimeTick() {
+        context.sendBroadcast(Intent(Intent.ACTION_TIME_TICK))
+        shadowOf(Looper.getMainLooper()).idle()
+    }
+
+    private fun createLifecycleOwner(hashCode: Int? = null): LifecycleOwner {
+        return object : LifecycleOwner by mock(LifecycleOwner::class.java) {
+            override fun hashCode(): Int = hashCode ?: super.hashCode()
+        }
+    }
+
+    private fun attachToWindow(view: View) {
+        val activity = Robolectric.buildActivity(Activity::class.java).setup().get()
+        activity.setContentView(FrameLayout(activity).apply { addView(view) })
+        shadowOf(Looper.getMainLooper()).idle()
+    }
+
+    private fun createController(clockId: String): ClockController {
+        val controller = mock(ClockController::class.java, RETURNS_DEEP_STUBS)
+        `when`(controller.config)
+            .thenReturn(ClockConfig(id = clockId, name = clockId, description = clockId))
+        val largeClock = createClockFace()
+        val smallClock = createClockFace()
+        `when`(controller.largeClock).thenReturn(largeClock)
+        `when`(controller.smallClock).thenReturn(smallClock)
+        return controller
+    }
+
+    private fun createClockFace(): ClockFaceController {
+        val face = mock(ClockFaceController::class.java, RETURNS_DEEP_STUBS)
+        `when`(face.view).thenReturn(View(context))
+        return face
+    }
+
+    companion object {
+        private const val CLOCK_A = "clock_a"
+        private const val CLOCK_B = "clock_b"
+        private const val CLOCK_C = "clock_c"
+    }
+}
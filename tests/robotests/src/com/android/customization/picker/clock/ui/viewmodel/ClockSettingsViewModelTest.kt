@@ -1,6 +1,7 @@
 package com.android.customization.picker.clock.ui.viewmodel
 
 import android.content.Context
+import android.os.Looper
 import android.stats.style.StyleEnums
 import androidx.test.filters.SmallTest
 import androidx.test.platform.app.InstrumentationRegistry
@@ -16,6 +17,7 @@ import com.android.customization.picker.color.domain.interactor.ColorPickerSnaps
 import com.android.wallpaper.testing.FakeSnapshotStore
 import com.android.wallpaper.testing.collectLastValue
 import com.google.common.truth.Truth.assertThat
+import java.time.Duration
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.launch
@@ -24,6 +26,7 @@ import kotlinx.coroutines.test.StandardTestDispatcher
 import kotlinx.coroutines.test.TestScope
 import kotlinx.coroutines.test.advanceTimeBy
 import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runCurrent
 import kotlinx.coroutines.test.runTest
 import kotlinx.coroutines.test.setMain
 import org.junit.After
@@ -31,6 +34,7 @@ import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
 
 @OptIn(ExperimentalCoroutinesApi::class)
 @SmallTest
@@ -185,6 +189,51 @@ class ClockSettingsViewModelTest {
             )
     }
 
+    @Test
+    fun onSliderProgressChanged_updatesSeedColorOnceOnNextFrame() = runTest {
+        val observedClockColorOptions = collectLastValue(underTest.colorOptions)
+        val observedSliderProgress = collectLastValue(underTest.sliderProgress)
+        val seedColors = mutableListOf<Int?>()
+        backgroundScope.launch { underTest.seedColor.collect { seedColors.add(it) } }
+        // Advance COLOR_OPTIONS_EVENT_UPDATE_DELAY_MILLIS since there is a delay from colorOptions
+        advanceTimeBy(ClockSettingsViewModel.COLOR_OPTIONS_EVENT_UPDATE_DELAY_MILLIS)
+        val option1OnClicked = collectLastValue(observedClockColorOptions()!![1].onClicked)
+        option1OnClicked()?.invoke()
+        advanceTimeBy(ClockSettingsViewModel.COLOR_OPTIONS_EVENT_UPDATE_DELAY_MILLIS)
+        val seedColorCount = seedColors.size
+
+        underTest.onSliderProgressChanged(10)
+        underTest.onSliderProgressChanged(20)
+        underTest.onSliderProgressChanged(99)
+        runCurrent()
+
+        // The slider follows right away, but the clock is only recolored on the next frame.
+        assertThat(observedSliderProgress()).isEqualTo(99)
+        assertThat(seedColors).hasSize(seedColorCount)
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(FRAME_DURATION_MILLIS))
+        runCurrent()
+
+        assertThat(seedColors).hasSize(seedColorCount + 1)
+        val expectedSelectedColorModel = colorMap.values.first() // RED
+        assertThat(seedColors.last()).isEqualTo(expectedSelectedColorModel.getSeedColor(99))
+    }
+
+    @Test
+    fun getSeedColor_matchesBlendedColorTone() {
+        colorMap.values.forEach { colorModel ->
+            (0..100).forEach { progress ->
+                assertThat(colorModel.getSeedColor(progress))
+                    .isEqualTo(
+                        ClockSettingsViewModel.blendColorWithTone(
+                            colorModel.color,
+                            colorModel.getColorTone(progress),
+                        )
+                    )
+            }
+        }
+    }
+
     @Test
     fun setClockSize() = runTest {
         val observedClockSize = collectLastValue(underTest.selectedClockSize)
@@ -213,4 +262,8 @@ class ClockSettingsViewModelTest {
         clockPickerInteractor.setSelectedClock(FakeClockPickerRepository.CLOCK_ID_3)
         assertThat(isSliderEnabled()).isFalse()
     }
+
+    companion object {
+        private const val FRAME_DURATION_MILLIS = 16L
+    }
 }
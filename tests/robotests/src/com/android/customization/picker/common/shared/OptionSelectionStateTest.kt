@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.picker.common.shared
+
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@SmallTest
+@RunWith(JUnit4::class)
+class OptionSelectionStateTest {
+
+    private val underTest = OptionSelectionState<String?>(initialSelectedKey = null)
+
+    @Test
+    fun isSelected_initialKey() {
+        assertThat(underTest.isSelected(null).value).isTrue()
+        assertThat(underTest.isSelected("a").value).isFalse()
+        assertThat(underTest.selectedKeys.value).containsExactly(null)
+    }
+
+    @Test
+    fun select_updatesPreviousAndNewlySelectedKeys() {
+        val isDefaultSelected = underTest.isSelected(null)
+        val isASelected = underTest.isSelected("a")
+        val isBSelected = underTest.isSelected("b")
+
+        underTest.select("a")
+
+        assertThat(isDefaultSelected.value).isFalse()
+        assertThat(isASelected.value).isTrue()
+        assertThat(isBSelected.value).isFalse()
+        assertThat(underTest.selectedKeys.value).containsExactly("a")
+
+        underTest.select("b")
+
+        assertThat(isASelected.value).isFalse()
+        assertThat(isBSelected.value).isTrue()
+        assertThat(underTest.selectedKeys.value).containsExactly("b")
+    }
+
+    @Test
+    fun isSelected_requestedAfterSelect_reflectsSelection() {
+        underTest.select("a")
+
+        assertThat(underTest.isSelected("a").value).isTrue()
+        assertThat(underTest.isSelected(null).value).isFalse()
+    }
+
+    @Test
+    fun selectAll_selectsEveryKey() {
+        val isASelected = underTest.isSelected("a")
+        val isBSelected = underTest.isSelected("b")
+
+        underTest.selectAll(setOf("a", "b"))
+
+        assertThat(underTest.isSelected(null).value).isFalse()
+        assertThat(isASelected.value).isTrue()
+        assertThat(isBSelected.value).isTrue()
+        assertThat(underTest.selectedKeys.value).containsExactly("a", "b")
+
+        underTest.select("b")
+
+        assertThat(isASelected.value).isFalse()
+        assertThat(isBSelected.value).isTrue()
+    }
+}